@@ -0,0 +1,248 @@
+package org.ow2.dsrg.jpmf.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+
+import org.ow2.dsrg.jpmf.util.Configurator.ConfigurationException;
+import org.ow2.dsrg.jpmf.util.Configurator.Property;
+import org.ow2.dsrg.jpmf.util.Configurator.Setter;
+import org.ow2.dsrg.jpmf.util.Configurator.WeakIdentityMap;
+
+
+/**
+ * Runnable check of the tracking of applied property values. The check
+ * exercises the weak identity map holding the values, the skipping of
+ * unchanged writes, forgetting the applied values, and concurrent writes to
+ * the same property. It prints {@code OK} on success and fails with an
+ * {@link AssertionError} otherwise.
+ */
+public class AppliedValuesCheck {
+
+	/* ***********************************************************************
+	 * Components
+	 * ***********************************************************************/
+
+	static class Counter {
+		@Property
+		Integer size;
+
+		int writes;
+
+		@Setter
+		void setName(String name) {
+			writes++;
+		}
+	}
+
+
+	/**
+	 * Component whose setter blocks while writing the value {@code "1"},
+	 * until released.
+	 */
+	static class SlowComponent {
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+
+		volatile String size;
+
+		@Setter
+		void setSize(String size) throws InterruptedException {
+			if ("1".equals(size) && entered.getCount() > 0) {
+				entered.countDown();
+				released.await();
+			}
+			this.size = size;
+		}
+	}
+
+
+	/**
+	 * Key with an {@code equals()} method matching every other key, which
+	 * must not make distinct keys share an entry.
+	 */
+	static class EqualKey {
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof EqualKey;
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+
+	/* ***********************************************************************
+	 * Checks
+	 * ***********************************************************************/
+
+	public static void main(String[] args) throws InterruptedException {
+		checkWeakIdentityMap();
+		checkWeakKeys();
+		checkSkippedWrites();
+		checkForgetAppliedValues();
+		checkFailedWrite();
+		checkConcurrentWrites();
+		System.out.println("OK");
+	}
+
+	/**
+	 * Checks that the map compares keys by identity, keeps the first value
+	 * associated with a key and finds all values after growing.
+	 */
+	private static void checkWeakIdentityMap() {
+		WeakIdentityMap<String> map = new WeakIdentityMap<>();
+		EqualKey first = new EqualKey();
+		EqualKey second = new EqualKey();
+
+		check(map.get(first) == null, "empty map must not find a value");
+		check("a".equals(map.putIfAbsent(first, "a")), "value must be added");
+		check("a".equals(map.putIfAbsent(first, "b")),
+				"existing value must be kept");
+		check(map.get(second) == null, "equal keys must not share an entry");
+		map.putIfAbsent(second, "b");
+		check("b".equals(map.get(second)), "second key must be found");
+
+		Object[] keys = new Object[1000];
+		for (int index = 0; index < keys.length; index++) {
+			keys[index] = new Object();
+			map.putIfAbsent(keys[index], String.valueOf(index));
+		}
+		for (int index = 0; index < keys.length; index++) {
+			check(String.valueOf(index).equals(map.get(keys[index])),
+					"value must be found after growing: " + index);
+		}
+		check("a".equals(map.get(first)), "first key must be found");
+	}
+
+	/**
+	 * Checks that the map does not keep its keys reachable.
+	 */
+	private static void checkWeakKeys() throws InterruptedException {
+		WeakIdentityMap<String> map = new WeakIdentityMap<>();
+		Object key = new Object();
+		map.putIfAbsent(key, "value");
+		WeakReference<Object> keyReference = new WeakReference<>(key);
+		key = null;
+
+		awaitCollection(keyReference);
+		map.putIfAbsent(new Object(), "other");
+	}
+
+	/**
+	 * Checks that re-applying an unchanged value neither invokes the setter
+	 * nor counts as a write.
+	 */
+	private static void checkSkippedWrites() {
+		Counter counter = new Counter();
+		long applied = Configurator.getAppliedWriteCount();
+		long skipped = Configurator.getSkippedWriteCount();
+
+		Configurator.setProperty(counter, "name", "counter");
+		Configurator.setProperty(counter, "name", "counter");
+		Configurator.setProperty(counter, "size", "4");
+		Configurator.setProperty(counter, "size", "4");
+		Configurator.setProperty(counter, "size", "5");
+
+		check(counter.writes == 1, "unchanged value must not be written");
+		check(counter.size == 5, "changed value must be written");
+		check(Configurator.getAppliedWriteCount() - applied == 3,
+				"unexpected applied write count");
+		check(Configurator.getSkippedWriteCount() - skipped == 2,
+				"unexpected skipped write count");
+	}
+
+	/**
+	 * Checks that forgetting the applied values makes the next write go
+	 * through.
+	 */
+	private static void checkForgetAppliedValues() {
+		Counter counter = new Counter();
+		Configurator.setProperty(counter, "size", "4");
+		counter.size = 7;
+
+		Configurator.setProperty(counter, "size", "4");
+		check(counter.size == 7, "unchanged value must be skipped");
+
+		Configurator.forgetAppliedValues(counter);
+		Configurator.setProperty(counter, "size", "4");
+		check(counter.size == 4, "forgotten value must be written");
+	}
+
+	/**
+	 * Checks that a failed write forgets the previously applied value.
+	 */
+	private static void checkFailedWrite() {
+		Counter counter = new Counter();
+		Configurator.setProperty(counter, "size", "4");
+		counter.size = 7;
+
+		try {
+			Configurator.setProperty(counter, "size", "not a number");
+			throw new AssertionError("invalid value must be rejected");
+		} catch(ConfigurationException configException) {
+			// expected
+		}
+
+		Configurator.setProperty(counter, "size", "4");
+		check(counter.size == 4, "value must be written after a failure");
+	}
+
+	/**
+	 * Checks that a write waiting for a slow write to the same object ends
+	 * with the recorded value matching the property, so that re-applying
+	 * the earlier value writes it again.
+	 */
+	private static void checkConcurrentWrites() throws InterruptedException {
+		final SlowComponent component = new SlowComponent();
+		Thread slowWriter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Configurator.setProperty(component, "size", "1");
+			}
+		});
+		Thread fastWriter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Configurator.setProperty(component, "size", "2");
+			}
+		});
+
+		slowWriter.start();
+		component.entered.await();
+		fastWriter.start();
+		Thread.sleep(50);
+		component.released.countDown();
+		slowWriter.join();
+		fastWriter.join();
+
+		check("2".equals(component.size), "later write must win");
+		Configurator.setProperty(component, "size", "1");
+		check("1".equals(component.size), "earlier value must be written");
+	}
+
+
+	/* ***********************************************************************
+	 * Helpers
+	 * ***********************************************************************/
+
+	private static void awaitCollection(WeakReference<?> reference)
+			throws InterruptedException {
+		for (int attempt = 0; attempt < 100; attempt++) {
+			if (reference.get() == null) {
+				return;
+			}
+			System.gc();
+			Thread.sleep(10);
+		}
+		throw new AssertionError("object must be garbage collected");
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+}
@@ -0,0 +1,285 @@
+package org.ow2.dsrg.jpmf.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.ow2.dsrg.jpmf.util.Configurator.ChangeRegistration;
+import org.ow2.dsrg.jpmf.util.Configurator.Property;
+import org.ow2.dsrg.jpmf.util.Configurator.PropertyChange;
+import org.ow2.dsrg.jpmf.util.Configurator.PropertyChangeListener;
+
+
+/**
+ * Runnable check of the property change notifications. The check exercises
+ * the coalescing of batched changes, prefix registrations, closing
+ * registrations, the ordering of notifications delivered to a slow
+ * listener and the delivery after a listener failure. It prints {@code OK}
+ * on success and fails with an {@link AssertionError} otherwise.
+ */
+public class ChangeListenerCheck {
+
+	/**
+	 * Executor running the notifications on the calling thread.
+	 */
+	private static final Executor directExecutor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	/**
+	 * Last error thrown by a notification task run by
+	 * {@link #threadExecutor}.
+	 */
+	private static final AtomicReference<Throwable> uncaughtError =
+			new AtomicReference<>();
+
+	/**
+	 * Executor running every notification task on a new thread, recording
+	 * the errors escaping the tasks.
+	 */
+	private static final Executor threadExecutor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			Thread thread = new Thread(command);
+			thread.setUncaughtExceptionHandler(
+					new Thread.UncaughtExceptionHandler() {
+						@Override
+						public void uncaughtException(Thread thread,
+								Throwable error) {
+							uncaughtError.set(error);
+						}
+					});
+			thread.start();
+		}
+	};
+
+
+	/* ***********************************************************************
+	 * Components
+	 * ***********************************************************************/
+
+	static class Pool {
+		@Property(isRequired = false)
+		Integer poolSize;
+
+		@Property(isRequired = false)
+		String poolName;
+
+		@Property(isRequired = false)
+		Integer timeout;
+	}
+
+
+	/**
+	 * Listener recording the notifications it receives.
+	 */
+	static class RecordingListener implements PropertyChangeListener {
+		final List<List<PropertyChange>> notifications =
+				Collections.synchronizedList(
+						new ArrayList<List<PropertyChange>>());
+
+		@Override
+		public void propertiesChanged(List<PropertyChange> changes) {
+			notifications.add(changes);
+		}
+	}
+
+
+	/* ***********************************************************************
+	 * Checks
+	 * ***********************************************************************/
+
+	public static void main(String[] args) throws InterruptedException {
+		Configurator.setChangeNotificationExecutor(directExecutor);
+		checkBatchCoalescing();
+		checkUnchangedValues();
+		checkClosedRegistration();
+
+		Configurator.setChangeNotificationExecutor(threadExecutor);
+		checkSlowListenerOrder();
+		checkFailingListener();
+		System.out.println("OK");
+	}
+
+	/**
+	 * Checks that the changes made in a batch are delivered once per
+	 * listener, with the repeated changes of a property merged.
+	 */
+	private static void checkBatchCoalescing() {
+		final Pool pool = new Pool();
+		RecordingListener poolListener = new RecordingListener();
+		RecordingListener timeoutListener = new RecordingListener();
+		Configurator.addPrefixChangeListener(pool, "pool", poolListener);
+		Configurator.addChangeListener(pool, "timeout", timeoutListener);
+
+		Configurator.runBatch(new Runnable() {
+			@Override
+			public void run() {
+				Configurator.setProperty(pool, "poolSize", "1");
+				Configurator.setProperty(pool, "poolSize", "2");
+				Configurator.setProperty(pool, "poolName", "main");
+				Configurator.setProperty(pool, "timeout", "5");
+			}
+		});
+
+		check(poolListener.notifications.size() == 1,
+				"batch must be delivered once: " + poolListener.notifications);
+		List<PropertyChange> changes = poolListener.notifications.get(0);
+		check(changes.size() == 2, "unexpected changes " + changes);
+		check(changes.get(0).getPropertyName().equals("poolSize")
+				&& changes.get(0).getOldValue() == null
+				&& changes.get(0).getNewValue().equals("2"),
+				"repeated changes must be merged: " + changes.get(0));
+		check(changes.get(1).getPropertyName().equals("poolName"),
+				"unexpected change " + changes.get(1));
+
+		check(timeoutListener.notifications.size() == 1
+				&& timeoutListener.notifications.get(0).size() == 1,
+				"unexpected notifications "
+						+ timeoutListener.notifications);
+	}
+
+	/**
+	 * Checks that writes leaving the values unchanged are not notified.
+	 */
+	private static void checkUnchangedValues() {
+		final Pool pool = new Pool();
+		RecordingListener listener = new RecordingListener();
+		Configurator.setProperty(pool, "poolSize", "2");
+		Configurator.addChangeListener(pool, "poolSize", listener);
+
+		Configurator.setProperty(pool, "poolSize", "2");
+		Configurator.runBatch(new Runnable() {
+			@Override
+			public void run() {
+				Configurator.setProperty(pool, "poolSize", "3");
+				Configurator.setProperty(pool, "poolSize", "2");
+			}
+		});
+
+		check(listener.notifications.isEmpty(),
+				"unchanged value must not be notified: "
+						+ listener.notifications);
+	}
+
+	/**
+	 * Checks that a closed registration receives no more notifications.
+	 */
+	private static void checkClosedRegistration() {
+		Pool pool = new Pool();
+		RecordingListener listener = new RecordingListener();
+		ChangeRegistration registration =
+				Configurator.addChangeListener(pool, "timeout", listener);
+
+		Configurator.setProperty(pool, "timeout", "1");
+		registration.close();
+		Configurator.setProperty(pool, "timeout", "2");
+
+		check(listener.notifications.size() == 1,
+				"closed registration must not be notified: "
+						+ listener.notifications);
+	}
+
+	/**
+	 * Checks that a slow listener receives the notifications one at a time
+	 * and in order.
+	 */
+	private static void checkSlowListenerOrder()
+			throws InterruptedException {
+		final int changeCount = 20;
+		final CountDownLatch delivered = new CountDownLatch(changeCount);
+		final List<String> values =
+				Collections.synchronizedList(new ArrayList<String>());
+		PropertyChangeListener listener = new PropertyChangeListener() {
+			private boolean isRunning;
+
+			@Override
+			public void propertiesChanged(List<PropertyChange> changes) {
+				synchronized (this) {
+					check(!isRunning, "notifications must not overlap");
+					isRunning = true;
+				}
+				sleep(values.isEmpty() ? 50 : 1);
+				values.add(changes.get(0).getNewValue());
+				synchronized (this) {
+					isRunning = false;
+				}
+				delivered.countDown();
+			}
+		};
+
+		Pool pool = new Pool();
+		Configurator.addChangeListener(pool, "timeout", listener);
+		List<String> expectedValues = new ArrayList<>();
+		for (int value = 1; value <= changeCount; value++) {
+			Configurator.setProperty(pool, "timeout", String.valueOf(value));
+			expectedValues.add(String.valueOf(value));
+		}
+
+		check(delivered.await(10, TimeUnit.SECONDS),
+				"notifications must be delivered: " + values);
+		check(values.equals(expectedValues),
+				"notifications must be delivered in order: " + values);
+	}
+
+	/**
+	 * Checks that a listener failing with an error still receives the
+	 * following notifications, and that the error reaches the executor.
+	 */
+	private static void checkFailingListener() throws InterruptedException {
+		final CountDownLatch delivered = new CountDownLatch(5);
+		PropertyChangeListener listener = new PropertyChangeListener() {
+			@Override
+			public void propertiesChanged(List<PropertyChange> changes) {
+				delivered.countDown();
+				if (changes.get(0).getNewValue().equals("1")) {
+					throw new AssertionError("listener failure");
+				}
+			}
+		};
+
+		Pool pool = new Pool();
+		Configurator.addChangeListener(pool, "timeout", listener);
+		for (String value : Arrays.asList("1", "2", "3", "4", "5")) {
+			Configurator.setProperty(pool, "timeout", value);
+		}
+
+		check(delivered.await(10, TimeUnit.SECONDS),
+				"notifications after a failure must be delivered");
+		Throwable error = uncaughtError.get();
+		for (int attempt = 0; error == null && attempt < 100; attempt++) {
+			sleep(10);
+			error = uncaughtError.get();
+		}
+		check(error != null && "listener failure".equals(error.getMessage()),
+				"listener error must reach the executor: " + error);
+	}
+
+
+	/* ***********************************************************************
+	 * Helpers
+	 * ***********************************************************************/
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch(InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+}
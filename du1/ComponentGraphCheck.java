@@ -0,0 +1,314 @@
+package org.ow2.dsrg.jpmf.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ow2.dsrg.jpmf.util.Configurator.ComponentGraph;
+import org.ow2.dsrg.jpmf.util.Configurator.ConfigurationException;
+import org.ow2.dsrg.jpmf.util.Configurator.Property;
+import org.ow2.dsrg.jpmf.util.Configurator.Setter;
+
+
+/**
+ * Runnable check of the {@link ComponentGraph} configuration. The check
+ * exercises the dependency ordering, reference injection, the detection of
+ * reference cycles and unknown references, the propagation of component
+ * failures and the configuration of long dependency chains. It prints
+ * {@code OK} on success and fails with an {@link AssertionError} otherwise.
+ */
+public class ComponentGraphCheck {
+
+	/**
+	 * Names of the components in the order in which they were configured.
+	 */
+	private static final List<String> configured =
+			Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * Number of components in the dependency chains, enough to exhaust the
+	 * stack if the components were completed recursively.
+	 */
+	private static final int CHAIN_LENGTH = 20000;
+
+
+	/* ***********************************************************************
+	 * Components
+	 * ***********************************************************************/
+
+	static class Pool {
+		@Property
+		Integer size;
+
+		@Setter
+		void setName(String name) {
+			configured.add(name);
+		}
+	}
+
+
+	static class Service {
+		@Property
+		Pool pool;
+
+		@Property(isRequired = false)
+		String peer;
+
+		@Setter
+		void setName(String name) {
+			configured.add(name);
+		}
+	}
+
+
+	static class Link {
+		@Property(isRequired = false)
+		Link previous;
+	}
+
+
+	/* ***********************************************************************
+	 * Checks
+	 * ***********************************************************************/
+
+	public static void main(String[] args) {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			checkDependencyOrder(executor);
+			checkCycle();
+			checkUnknownReference();
+			checkFailurePropagation(executor);
+			checkRejectedExecution();
+			checkLongChain();
+			checkLongChainRejected();
+		} finally {
+			executor.shutdown();
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Checks that every component is configured after the components it
+	 * references and that references are injected into fields.
+	 */
+	private static void checkDependencyOrder(Executor executor) {
+		configured.clear();
+		Pool pool = new Pool();
+		Service front = new Service();
+		Service back = new Service();
+
+		ComponentGraph graph = new ComponentGraph();
+		graph.addComponent("front", front,
+				properties("name", "front", "pool", "@pool", "peer", "@back"));
+		graph.addComponent("back", back,
+				properties("name", "back", "pool", "@pool"));
+		graph.addComponent("pool", pool,
+				properties("name", "pool", "size", "4"));
+
+		ComponentGraph.Report report = graph.configure(executor);
+
+		check(configured.indexOf("pool") < configured.indexOf("back"),
+				"pool must be configured before back: " + configured);
+		check(configured.indexOf("back") < configured.indexOf("front"),
+				"back must be configured before front: " + configured);
+		check(front.pool == pool && back.pool == pool,
+				"pool must be injected into services");
+		check("@back".equals(front.peer),
+				"string property must receive the raw reference");
+		check(report.getCriticalPath().equals(
+				Arrays.asList("pool", "back", "front")),
+				"unexpected critical path " + report.getCriticalPath());
+	}
+
+	/**
+	 * Checks that a reference cycle is rejected before configuring any
+	 * component.
+	 */
+	private static void checkCycle() {
+		configured.clear();
+		ComponentGraph graph = new ComponentGraph();
+		graph.addComponent("a", new Service(),
+				properties("name", "a", "peer", "@b"));
+		graph.addComponent("b", new Service(),
+				properties("name", "b", "peer", "@a"));
+
+		String message = expectFailure(graph, null).getMessage();
+		check(message.contains("cycle"), "unexpected message " + message);
+		check(configured.isEmpty(), "no component may be configured");
+	}
+
+	/**
+	 * Checks that a reference to a component missing from the graph is
+	 * rejected.
+	 */
+	private static void checkUnknownReference() {
+		ComponentGraph graph = new ComponentGraph();
+		graph.addComponent("a", new Service(),
+				properties("name", "a", "peer", "@missing"));
+
+		String message = expectFailure(graph, null).getMessage();
+		check(message.contains("missing"), "unexpected message " + message);
+	}
+
+	/**
+	 * Checks that a component failure is reported once, naming the failed
+	 * component, and that its dependents are not configured.
+	 */
+	private static void checkFailurePropagation(Executor executor) {
+		configured.clear();
+		ComponentGraph graph = new ComponentGraph();
+		graph.addComponent("pool", new Pool(),
+				properties("name", "pool", "size", "not a number"));
+		graph.addComponent("service", new Service(),
+				properties("name", "service", "pool", "@pool"));
+
+		ConfigurationException failure = expectFailure(graph, executor);
+		check(failure.getMessage().contains("component pool"),
+				"unexpected message " + failure.getMessage());
+		check(failure.getCause() instanceof ConfigurationException
+				&& failure.getCause().getCause() == null,
+				"failure must wrap the original error exactly once");
+		check(!configured.contains("service"),
+				"dependent of a failed component must not be configured");
+	}
+
+	/**
+	 * Checks that an executor rejecting the tasks makes the configuration
+	 * fail instead of waiting forever.
+	 */
+	private static void checkRejectedExecution() {
+		configured.clear();
+		ComponentGraph graph = new ComponentGraph();
+		graph.addComponent("pool", new Pool(),
+				properties("name", "pool", "size", "1"));
+		graph.addComponent("service", new Service(),
+				properties("name", "service", "pool", "@pool"));
+
+		ConfigurationException failure = expectFailure(graph,
+				new Executor() {
+					@Override
+					public void execute(Runnable command) {
+						throw new RejectedExecutionException("rejected");
+					}
+				});
+		check(failure.getCause() instanceof RejectedExecutionException,
+				"unexpected cause " + failure.getCause());
+		check(configured.isEmpty(), "no component may be configured");
+	}
+
+
+	/**
+	 * Checks that a long dependency chain is configured by an executor
+	 * running the tasks on the submitting thread.
+	 */
+	private static void checkLongChain() {
+		Link[] links = new Link[CHAIN_LENGTH];
+		ComponentGraph graph = makeChain(links);
+
+		graph.configure(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		for (int index = 1; index < links.length; index++) {
+			check(links[index].previous == links[index - 1],
+					"link must be injected: " + index);
+		}
+	}
+
+	/**
+	 * Checks that an executor rejecting the tasks in the middle of a long
+	 * dependency chain makes the configuration fail instead of exhausting
+	 * the stack or waiting forever.
+	 */
+	private static void checkLongChainRejected() {
+		Link[] links = new Link[CHAIN_LENGTH];
+		ComponentGraph graph = makeChain(links);
+
+		final AtomicInteger acceptedCount = new AtomicInteger();
+		ConfigurationException failure = expectFailure(graph,
+				new Executor() {
+					@Override
+					public void execute(Runnable command) {
+						if (acceptedCount.incrementAndGet() > 1) {
+							throw new RejectedExecutionException("rejected");
+						}
+						command.run();
+					}
+				});
+		check(failure.getCause() instanceof RejectedExecutionException,
+				"unexpected cause " + failure.getCause());
+		check(links[2].previous == null,
+				"components after the rejection must not be configured");
+	}
+
+
+	/* ***********************************************************************
+	 * Helpers
+	 * ***********************************************************************/
+
+	/**
+	 * Configures the given graph and returns the expected failure. A
+	 * {@code null} executor selects the default one.
+	 */
+	private static ConfigurationException expectFailure(ComponentGraph graph,
+			Executor executor) {
+		try {
+			if (executor == null) {
+				graph.configure();
+			} else {
+				graph.configure(executor);
+			}
+		} catch(ConfigurationException configException) {
+			return configException;
+		}
+		throw new AssertionError("configuration must fail");
+	}
+
+	/**
+	 * Creates a graph of components each referencing the previous one,
+	 * storing the components in the given array.
+	 */
+	private static ComponentGraph makeChain(Link[] links) {
+		ComponentGraph graph = new ComponentGraph();
+		for (int index = 0; index < links.length; index++) {
+			links[index] = new Link();
+			if (index == 0) {
+				//
+				// Close the chain on the first link, so that its optional
+				// reference is not set to the default value.
+				//
+				links[index].previous = links[index];
+				graph.addComponent("link0", links[index], properties());
+			} else {
+				graph.addComponent("link" + index, links[index],
+						properties("previous", "@link" + (index - 1)));
+			}
+		}
+		return graph;
+	}
+
+	private static Map<String, String> properties(String ... namesAndValues) {
+		Map<String, String> properties = new LinkedHashMap<>();
+		for (int index = 0; index < namesAndValues.length; index += 2) {
+			properties.put(namesAndValues[index], namesAndValues[index + 1]);
+		}
+		return properties;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+}
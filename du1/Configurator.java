@@ -5,11 +5,40 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,11 +70,80 @@ import java.util.logging.Logger;
  * the {@link #checkConfigurableFields(Object) check()} method.
  * The validation ensures that no field representing a mandatory configurable
  * property contains {@code null}.
+ * <p>
+ * The configurator remembers the last raw value applied to each property of
+ * each configurable object. Setting a property to the value it already has
+ * is skipped without converting the value or invoking the setter.
+ * <p>
+ * Components can observe property changes through a
+ * {@link PropertyChangeListener}. Changes made within a
+ * {@link #runBatch(Runnable) batch} are delivered to each listener in a
+ * single asynchronous notification once the batch completes.
+ * <p>
+ * Graphs of components referencing each other can be configured
+ * concurrently in dependency order using a {@link ComponentGraph}.
+ * <p>
+ * Property names are looked up in per-class hash tables. Besides exact
+ * matching, names can be matched ignoring letter case or ignoring both
+ * letter case and word separators, see {@link NameMatching}.
  */
 public class Configurator {
 
 	public static final Logger log = Logger.getAnonymousLogger();
 
+	/**
+	 * Last raw values applied to object properties, keyed by target object
+	 * and property name. Target objects are held weakly.
+	 */
+	private static final WeakIdentityMap<Map<String, String>> appliedValues =
+			new WeakIdentityMap<>();
+
+	private static final AtomicLong appliedWriteCount = new AtomicLong();
+	private static final AtomicLong skippedWriteCount = new AtomicLong();
+
+	/**
+	 * Change listener registrations keyed by the observed object. The map
+	 * holds the observed objects weakly, but the registrations hold the
+	 * listeners strongly, see {@link ChangeRegistration}.
+	 */
+	private static final WeakIdentityMap<List<ChangeRegistration>>
+			changeListeners = new WeakIdentityMap<>();
+
+	/**
+	 * Determines whether any change listener has ever been registered, so
+	 * that writes can skip the listener lookup until then.
+	 */
+	private static volatile boolean hasChangeListeners;
+
+	/**
+	 * Queues of pending notifications keyed by listener.
+	 */
+	private static final WeakIdentityMap<NotificationQueue>
+			notificationQueues = new WeakIdentityMap<>();
+
+	/**
+	 * Batch collecting property changes made on the current thread, or
+	 * {@code null} if no batch is running.
+	 */
+	private static final ThreadLocal<ChangeBatch> currentBatch =
+			new ThreadLocal<>();
+
+	private static volatile Executor notificationExecutor =
+			makeDefaultNotificationExecutor();
+
+	private static final ClassValue<ClassProperties> classProperties =
+			new ClassValue<ClassProperties>() {
+				@Override
+				protected ClassProperties computeValue(Class<?> type) {
+					return new ClassProperties(type);
+				}
+			};
+
+	private static final PropertyDiagnostics diagnostics =
+			new PropertyDiagnostics();
+
+	private static volatile NameMatching nameMatching = NameMatching.EXACT;
+
 
 	/* ***********************************************************************
 	 * ANNOTATIONS
@@ -114,6 +212,100 @@ public class Configurator {
 	}
 
 
+	/* ***********************************************************************
+	 * NameMatching
+	 * ***********************************************************************/
+
+	/**
+	 * Determines which property names match a declared property name.
+	 */
+	public enum NameMatching {
+
+		/**
+		 * Names must be identical.
+		 */
+		EXACT,
+
+		/**
+		 * Names may differ in letter case, e.g. {@code maxSize} matches
+		 * {@code MAXSIZE}.
+		 */
+		IGNORE_CASE,
+
+		/**
+		 * Names may differ in letter case and in dashes and underscores,
+		 * so that camel case, kebab case and snake case spellings match,
+		 * e.g. {@code maxSize} matches {@code max-size} and
+		 * {@code MAX_SIZE}.
+		 */
+		RELAXED;
+
+		/**
+		 * Returns a hash code of the given name consistent with this mode.
+		 */
+		int hash(String name) {
+			int hash;
+			if (this == EXACT) {
+				hash = name.hashCode();
+			} else {
+				hash = 0;
+				for (int index = 0; index < name.length(); index++) {
+					char character = name.charAt(index);
+					if (!isIgnored(character)) {
+						hash = 31 * hash + fold(character);
+					}
+				}
+			}
+			return hash ^ (hash >>> 16);
+		}
+
+		/**
+		 * Determines whether the given names match in this mode.
+		 */
+		boolean matches(String declaredName, String name) {
+			if (this == EXACT) {
+				return declaredName.equals(name);
+			}
+
+			//
+			// Compare the names character by character, skipping the
+			// ignored characters in both names.
+			//
+			int declaredIndex = 0;
+			int index = 0;
+			while (true) {
+				while (declaredIndex < declaredName.length()
+						&& isIgnored(declaredName.charAt(declaredIndex))) {
+					declaredIndex++;
+				}
+				while (index < name.length()
+						&& isIgnored(name.charAt(index))) {
+					index++;
+				}
+				if (declaredIndex == declaredName.length()
+						|| index == name.length()) {
+					return declaredIndex == declaredName.length()
+							&& index == name.length();
+				}
+				if (fold(declaredName.charAt(declaredIndex))
+						!= fold(name.charAt(index))) {
+					return false;
+				}
+				declaredIndex++;
+				index++;
+			}
+		}
+
+		private boolean isIgnored(char character) {
+			return this == RELAXED && (character == '-' || character == '_');
+		}
+
+		private static char fold(char character) {
+			return Character.toLowerCase(Character.toUpperCase(character));
+		}
+	}
+
+
 	/* ***********************************************************************
 	 * PUBLIC METHODS
 	 * ***********************************************************************/
@@ -135,27 +327,224 @@ public class Configurator {
 	public static void setProperty(Object target, String propertyName,
 			String propertyValue) {
 		//
-		// First try to obtain a method based setter, which is necessary
-		// for more complex properties. If that fails, try to obtain a
-		// field based setter, assuming the property is simple enough to
-		// convert to object instance. If that also fails, log a warning.
+		// Report properties unknown to the target class right away. The
+		// class metadata is cached, so this path does not allocate.
 		//
-		PropertySetter setter = makeMethodSetter(target, propertyName);
-		if (setter == null) {
-			setter = makeFieldPropertySetter(target, propertyName);
+		Class<?> targetClass = target.getClass();
+		PropertyEntry property =
+				getClassProperties(targetClass).findProperty(propertyName);
+		if (property == null) {
+			diagnostics.unknownProperty(targetClass, propertyName);
+			return;
 		}
-		if (setter == null) {
-			if (log.isLoggable(Level.WARNING)) {
-				log.log(Level.WARNING, "Unable to find configuration method " +
-						"for property %s", propertyName);
+
+		setPropertyValue(target, property, propertyValue);
+	}
+
+	/**
+	 * Sets the given properties in the given configurable object as a single
+	 * batch. Change listeners are notified once, after all the properties
+	 * have been set.
+	 *
+	 * @param target
+	 *	  target configurable object to set the properties on
+	 * @param properties
+	 *	  property values keyed by property names
+	 * @throws ConfigurationException
+	 *	  if the value of any of the given properties cannot be set on the
+	 *	  given object
+	 */
+	public static void setProperties(final Object target,
+			final Map<String, String> properties) {
+		runBatch(new Runnable() {
+			@Override
+			public void run() {
+				for (Map.Entry<String, String> property :
+						properties.entrySet()) {
+					setProperty(target, property.getKey(),
+							property.getValue());
+				}
 			}
+		});
+	}
+
+	/**
+	 * Runs the given configuration code as a single batch. All property
+	 * changes made on the current thread while the batch is running are
+	 * collected and change listeners are notified once the batch completes,
+	 * even if it completes abruptly. Batches may be nested, in which case
+	 * the listeners are notified when the outermost batch completes.
+	 *
+	 * @param configuration
+	 *	  code configuring one or more objects
+	 */
+	public static void runBatch(Runnable configuration) {
+		ChangeBatch batch = currentBatch.get();
+		if (batch != null) {
+			configuration.run();
+			return;
+		}
+
+		batch = new ChangeBatch();
+		currentBatch.set(batch);
+		try {
+			configuration.run();
+		} finally {
+			currentBatch.remove();
+			batch.dispatch();
+		}
+	}
+
+	/**
+	 * Registers a listener notified about changes of the given property of
+	 * the given object. The listener is held strongly until the returned
+	 * registration is closed, see {@link ChangeRegistration}.
+	 *
+	 * @param target
+	 *	  configurable object to observe
+	 * @param propertyName
+	 *	  name of the property to observe
+	 * @param listener
+	 *	  listener to notify
+	 * @return
+	 *	  registration removing the listener when closed
+	 */
+	public static ChangeRegistration addChangeListener(Object target,
+			String propertyName, PropertyChangeListener listener) {
+		return addChangeRegistration(target, propertyName, false, listener);
+	}
+
+	/**
+	 * Registers a listener notified about changes of all properties of the
+	 * given object whose names start with the given prefix. An empty prefix
+	 * matches all properties.
+	 *
+	 * @param target
+	 *	  configurable object to observe
+	 * @param propertyNamePrefix
+	 *	  prefix of the names of the properties to observe
+	 * @param listener
+	 *	  listener to notify
+	 * @return
+	 *	  registration removing the listener when closed
+	 */
+	public static ChangeRegistration addPrefixChangeListener(Object target,
+			String propertyNamePrefix, PropertyChangeListener listener) {
+		return addChangeRegistration(target, propertyNamePrefix, true,
+				listener);
+	}
+
+	/**
+	 * Removes all registrations of the given listener on the given object.
+	 *
+	 * @param target
+	 *	  observed configurable object
+	 * @param listener
+	 *	  listener to remove
+	 */
+	public static void removeChangeListener(Object target,
+			PropertyChangeListener listener) {
+		List<ChangeRegistration> registrations = changeListeners.get(target);
+		if (registrations == null) {
 			return;
 		}
+		for (ChangeRegistration registration : registrations) {
+			if (registration.listener == listener) {
+				registration.close();
+			}
+		}
+	}
+
+	/**
+	 * Sets the executor used to deliver change notifications. By default,
+	 * notifications are delivered on virtual threads if the platform
+	 * supports them, or on pooled daemon threads otherwise. Notifications
+	 * for a single listener are delivered one at a time, in the order in
+	 * which the batches completed.
+	 *
+	 * @param executor
+	 *	  executor delivering change notifications
+	 */
+	public static void setChangeNotificationExecutor(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("executor must not be null");
+		}
+		notificationExecutor = executor;
+	}
 
+	/**
+	 * Forgets all property values applied to the given object, so that
+	 * the next {@link #setProperty(Object, String, String) setProperty()}
+	 * call writes the value even if it has not changed. This is needed when
+	 * the object properties have been modified by other means than the
+	 * {@link Configurator}.
+	 *
+	 * @param target
+	 *	  configurable object to forget the applied values for
+	 */
+	public static void forgetAppliedValues(Object target) {
 		//
-		// Set the property value.
+		// Clear the map instead of removing it, so that writes in
+		// progress keep serializing on the same lock.
 		//
-		setter.setValue(propertyValue);
+		Map<String, String> targetValues = appliedValues.get(target);
+		if (targetValues != null) {
+			synchronized (targetValues) {
+				targetValues.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of property writes performed by
+	 * {@link #setProperty(Object, String, String) setProperty()}.
+	 *
+	 * @return
+	 *	  number of property values actually written
+	 */
+	public static long getAppliedWriteCount() {
+		return appliedWriteCount.get();
+	}
+
+	/**
+	 * Returns the number of property writes skipped by
+	 * {@link #setProperty(Object, String, String) setProperty()} because
+	 * the value was identical to the last applied value.
+	 *
+	 * @return
+	 *	  number of skipped unchanged property writes
+	 */
+	public static long getSkippedWriteCount() {
+		return skippedWriteCount.get();
+	}
+
+	/**
+	 * Returns the sink collecting diagnostics about unknown properties and
+	 * properties which could not be set.
+	 *
+	 * @return
+	 *	  property diagnostics sink
+	 */
+	public static PropertyDiagnostics getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * Sets how property names passed to the configurator are matched
+	 * against the declared property names. The default is
+	 * {@link NameMatching#EXACT}. A property whose declared name is
+	 * identical to the given name always takes precedence over properties
+	 * matching in the looser modes. Regardless of the mode, applied values
+	 * and property changes are always tracked under the declared names.
+	 *
+	 * @param matching
+	 *	  property name matching mode
+	 */
+	public static void setPropertyNameMatching(NameMatching matching) {
+		if (matching == null) {
+			throw new IllegalArgumentException("matching must not be null");
+		}
+		nameMatching = matching;
 	}
 
 	/**
@@ -178,15 +567,14 @@ public class Configurator {
 		//
 
 		try {
-			for (Field field : new AllDeclaredFieldsIterable(
-					target.getClass())) {
+			for (Field field : getClassProperties(
+					target.getClass()).configurableFields) {
 				//
-				// Skip fields without the @Property annotation or fields
-				// with non-null value.
+				// Skip fields with non-null value.
 				//
 				Property property = field.getAnnotation(Property.class);
 				Object propertyValue = getObjectFieldValue(target, field);
-				if (property == null || propertyValue != null) {
+				if (propertyValue != null) {
 					continue;
 				}
 
@@ -222,60 +610,30 @@ public class Configurator {
 	 * ***********************************************************************/
 
 	/**
-	 * Returns a field based {@link PropertySetter} bound to the given object
-	 * and property name. When setting the property value, the returned
-	 * {@link PropertySetter} will modify the value of an object field annotated
-	 * by the {@code @Property} annotation with matching name.
+	 * Creates a field based {@link PropertySetter} bound to the given object
+	 * and property name.
 	 *
 	 * @param target
 	 *	  target object on which to set the property
 	 * @param propertyName
-	 *	  name of the property to set
-	 *
+	 *	  declared name of the property to set
+	 * @param field
+	 *	  field holding the property
 	 * @return
 	 *	  {@link PropertySetter} which allows to configure the property on
-	 *	  the given object, or {@code null} if the target object has no field
-	 *	  with matching annotation
+	 *	  the given object
 	 */
-	static PropertySetter makeFieldPropertySetter(final Object target,
-			final String propertyName) {
-		//
-		// Find a configurable field for the given property and create a
-		// PropertySetter for the property.
-		//
-		// Specifically, enumerate all fields in the given object's class
-		// hierarchy and find the first field annotated with the
-		// @Property annotation matching the given property field.
-		//
-		for (final Field field :
-				new AllDeclaredFieldsIterable(target.getClass())) {
-			String classPropertyName = null;
-			Property property = field.getAnnotation(Property.class);
-			if (property != null) {
-				classPropertyName = getPropertyName(property, field);
-			}
-
-			if (propertyName.equals(classPropertyName)) {
-				//
-				// Match found -- create the setter.
-				//
-				return new PropertySetter() {
-					@Override
-					public void setValue(String newValue)
-							throws ConfigurationException {
-						trace("setting field property %s to %s", propertyName,
-								newValue);
-						setFieldProperty(target, propertyName, newValue,
-								field);
-					}
-				};
+	private static PropertySetter createFieldSetter(final Object target,
+			final String propertyName, final Field field) {
+		return new PropertySetter() {
+			@Override
+			public void setValue(String newValue)
+					throws ConfigurationException {
+				trace("setting field property %s to %s", propertyName,
+						newValue);
+				setFieldProperty(target, propertyName, newValue, field);
 			}
-		}
-
-		//
-		// No match found.
-		//
-		return null;
+		};
 	}
 
 
@@ -368,113 +726,1936 @@ public class Configurator {
 
 
 	/* ***********************************************************************
-	 * Method-based property setter
+	 * ClassProperties
 	 * ***********************************************************************/
 
 	/**
-	 * Returns a method based {@link PropertySetter} bound to the given object
-	 * and property name. When setting the property value, the returned
-	 * {@link PropertySetter} will invoke a setter method annotated by the
-	 * {@link Setter} annotation with matching name.
-	 *
-	 * @param target
-	 *	  target object on which to set the property
-	 * @param propertyName
-	 *	  name of the property to set
-	 * @return
-	 *	  {@link PropertySetter} which allows to configure the property on
-	 *	  the given object, or {@code null} if the target object has no setter
-	 *	  method with matching annotation
-	 * @throws SecurityException
+	 * Returns the cached configurable property metadata of the given class.
 	 */
-	static PropertySetter makeMethodSetter(final Object target,
-			final String propertyName) throws SecurityException {
-		Class<?> targetClass;
-
-		//
-		// Find a setter method for the given property and create a
-		// PropertySetter for the property.
-		//
-		// Specifically, enumerate all methods in the given object's class
-		// hierarchy and find the first setter method annotated with the
-		// @Setter annotation matching the given property field.
-		//
-		targetClass = target.getClass();
-		do {
-			for (final Method declaredMethod :
-					targetClass.getDeclaredMethods()) {
-				String fieldName = getMethodFieldName(declaredMethod);
-				if (propertyName.equals(fieldName)) {
-					//
-					// Match found -- create the setter.
-					//
-					return createMethodSetter(target, propertyName,
-							declaredMethod);
-				}
-			}
-			targetClass = targetClass.getSuperclass();
-		} while (targetClass != null);
-		//
-		// No match found.
-		//
-		return null;
+	static ClassProperties getClassProperties(Class<?> targetClass) {
+		return classProperties.get(targetClass);
 	}
 
-	/* ***********************************************************************
-	 * ConfigurationException
-	 * ***********************************************************************/
 
 	/**
-	 * Common exception for all configuration errors.
+	 * Configurable property metadata of a class, i.e. the setter methods and
+	 * the configurable fields found in the class hierarchy. The metadata is
+	 * collected once per class and the members are made accessible, so that
+	 * they can be shared by concurrently configured objects. Lookup tables
+	 * for the individual name matching modes are compiled on first use.
 	 */
-	public static class ConfigurationException extends RuntimeException {
-		private static final long serialVersionUID = 6308762387098032853L;
-		ConfigurationException(String format, Object ... args) {
-			super(String.format(format, args));
+	static final class ClassProperties {
+		private final List<PropertyEntry> properties = new ArrayList<>();
+		private final List<Field> configurableFields = new ArrayList<>();
+		private final Class<?> targetClass;
+		private final PropertyTable[] tables =
+				new PropertyTable[NameMatching.values().length];
+
+		ClassProperties(Class<?> targetClass) {
+			this.targetClass = targetClass;
+
+			//
+			// Enumerate all methods in the class hierarchy and keep the
+			// first setter method annotated with the @Setter annotation
+			// for each property.
+			//
+			Map<String, Method> setterMethods = new LinkedHashMap<>();
+			for (Class<?> klass = targetClass; klass != null;
+					klass = klass.getSuperclass()) {
+				for (Method declaredMethod : klass.getDeclaredMethods()) {
+					String fieldName = getMethodFieldName(declaredMethod);
+					if (fieldName != null
+							&& !setterMethods.containsKey(fieldName)) {
+						makeAccessible(declaredMethod);
+						setterMethods.put(fieldName, declaredMethod);
+					}
+				}
+			}
+
+			//
+			// Enumerate all fields in the class hierarchy, collect fields
+			// annotated with the @Property annotation and keep the first
+			// field for each property.
+			//
+			Map<String, Field> propertyFields = new LinkedHashMap<>();
+			for (Field field : new AllDeclaredFieldsIterable(targetClass)) {
+				Property property = field.getAnnotation(Property.class);
+				if (property == null) {
+					continue;
+				}
+
+				makeAccessible(field);
+				configurableFields.add(field);
+				String propertyName = getPropertyName(property, field);
+				if (!propertyFields.containsKey(propertyName)) {
+					propertyFields.put(propertyName, field);
+				}
+			}
+
+			//
+			// Properties with setter methods come first, so that they take
+			// precedence when several names match the same lookup.
+			//
+			for (Map.Entry<String, Method> setter : setterMethods.entrySet()) {
+				properties.add(new PropertyEntry(setter.getKey(),
+						setter.getValue(),
+						propertyFields.get(setter.getKey())));
+			}
+			for (Map.Entry<String, Field> field : propertyFields.entrySet()) {
+				if (!setterMethods.containsKey(field.getKey())) {
+					properties.add(new PropertyEntry(field.getKey(), null,
+							field.getValue()));
+				}
+			}
 		}
-		ConfigurationException(Throwable throwable, String format,
-				Object ... args) {
-			super(String.format(format, args), throwable);
+
+		/**
+		 * Returns the property matching the given name in the current
+		 * {@link NameMatching name matching} mode.
+		 *
+		 * @return
+		 *	  matching property, or {@code null} if the class has no
+		 *	  such property
+		 */
+		PropertyEntry findProperty(String propertyName) {
+			//
+			// An exact match always wins, so that a looser mode never makes
+			// a property unreachable by its declared name.
+			//
+			PropertyEntry property =
+					getTable(NameMatching.EXACT).find(propertyName);
+			NameMatching matching = nameMatching;
+			if (property == null && matching != NameMatching.EXACT) {
+				property = getTable(matching).find(propertyName);
+			}
+			return property;
+		}
+
+		private PropertyTable getTable(NameMatching matching) {
+			//
+			// The tables are immutable, so a table compiled concurrently
+			// by several threads is harmless.
+			//
+			PropertyTable table = tables[matching.ordinal()];
+			if (table == null) {
+				table = new PropertyTable(targetClass, properties, matching);
+				tables[matching.ordinal()] = table;
+			}
+			return table;
+		}
+
+		private static void makeAccessible(AccessibleObject member) {
+			try {
+				member.setAccessible(true);
+			} catch(RuntimeException accessException) {
+				/* quell the exception, access fails when setting the value */
+			}
 		}
 	}
 
 
 	/**
-	 * Wraps the given {@link Throwable} as a {@link ConfigurationException}
-	 * along with an additional formatted message.
+	 * Configurable property of a class with the setter method and the field
+	 * holding the property, if any.
 	 */
-	private static void wrap(Throwable throwable, String format,
-			Object ... args) {
-		throw new ConfigurationException(throwable, format, args);
+	static final class PropertyEntry {
+		final String name;
+		final Method setterMethod;
+		final Field field;
+
+		PropertyEntry(String name, Method setterMethod, Field field) {
+			this.name = name;
+			this.setterMethod = setterMethod;
+			this.field = field;
+		}
 	}
 
 
-
-	/* ***********************************************************************
-	 * AllDeclaredFieldsIterable
-	 * ***********************************************************************/
-
 	/**
-	 * Provides an iterable interface to fields declared in a class hierarchy.
-	 * The provided iterator traverses the inheritance hierarchy from the given
-	 *(leaf) class to the(root) base class and returns all fields declared in
-	 * the classes along the inheritance path. The iterator(obviously) does not
-	 * support element removal, since it operates on an immutable structure.
+	 * Open addressing hash table of the properties of a class, compiled for
+	 * a particular name matching mode. The hashes of the declared names are
+	 * computed in advance and compared before the names themselves. The
+	 * table is at most half full and uses linear probing, so a lookup
+	 * inspects only a few slots regardless of the number of properties, and
+	 * it does not allocate. If several declared names match each other in
+	 * the table mode, only the first property is kept and a warning is
+	 * logged; the others remain reachable by their exact names.
 	 */
-	static class AllDeclaredFieldsIterable implements Iterable<Field> {
-		private Class<?> leaf;
+	static final class PropertyTable {
+		private final NameMatching matching;
+		private final int mask;
+		private final int[] hashes;
+		private final PropertyEntry[] entries;
+
+		PropertyTable(Class<?> targetClass, List<PropertyEntry> properties,
+				NameMatching matching) {
+			int capacity = 2;
+			while (capacity < 2 * properties.size()) {
+				capacity <<= 1;
+			}
+
+			this.matching = matching;
+			this.mask = capacity - 1;
+			this.hashes = new int[capacity];
+			this.entries = new PropertyEntry[capacity];
+
+			for (PropertyEntry property : properties) {
+				int hash = matching.hash(property.name);
+				int slot = findSlot(property.name, hash);
+				if (entries[slot] == null) {
+					hashes[slot] = hash;
+					entries[slot] = property;
+				} else {
+					log.log(Level.WARNING, "Properties {0} and {1} of {2} "
+							+ "match each other in {3} mode, {1} is only "
+							+ "matched by its exact name", new Object[] {
+							entries[slot].name, property.name,
+							targetClass.getName(), matching });
+				}
+			}
+		}
 
 		/**
-		 * Creates an iterable for the given leaf class. If the leaf class
-		 * is {@code null}, the iterable produces an empty iterator.
+		 * Returns the property matching the given name, or {@code null} if
+		 * there is no such property.
 		 */
-		AllDeclaredFieldsIterable(Class<?> leafClass) {
-			leaf = leafClass;
+		PropertyEntry find(String propertyName) {
+			return entries[findSlot(propertyName,
+					matching.hash(propertyName))];
 		}
 
-		@Override
-		public Iterator<Field> iterator() {
-			return new Iterator<Field>() {
+		/**
+		 * Returns the slot holding the property matching the given name, or
+		 * the empty slot where such property belongs.
+		 */
+		private int findSlot(String propertyName, int hash) {
+			int slot = hash & mask;
+			while (entries[slot] != null) {
+				if (hashes[slot] == hash && matching.matches(
+						entries[slot].name, propertyName)) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+	}
+
+
+	/* ***********************************************************************
+	 * Applied values
+	 * ***********************************************************************/
+
+	/**
+	 * Returns the raw values applied to the properties of the given object,
+	 * creating an empty map on first use. The map also serves as the lock
+	 * that serializes writes to the properties of the object, so that the
+	 * recorded values always match the values last written.
+	 *
+	 * @param target
+	 *	  configurable object
+	 * @return
+	 *	  map of property names to the applied raw values
+	 */
+	private static Map<String, String> getAppliedValues(Object target) {
+		Map<String, String> targetValues = appliedValues.get(target);
+		if (targetValues == null) {
+			targetValues = appliedValues.putIfAbsent(target,
+					new HashMap<String, String>());
+		}
+		return targetValues;
+	}
+
+	/**
+	 * Sets the given property to the given value in the given configurable
+	 * object, unless the value has already been applied.
+	 *
+	 * @param target
+	 *	  target configurable object to set the property on
+	 * @param property
+	 *	  property of the target object class
+	 * @param propertyValue
+	 *	  property value
+	 * @throws ConfigurationException
+	 *	  if the value of the given property cannot be set on the
+	 *	  given object
+	 */
+	private static void setPropertyValue(Object target,
+			PropertyEntry property, String propertyValue) {
+		//
+		// Use the declared property name, so that values set using
+		// differently spelled names are tracked together.
+		//
+		String propertyName = property.name;
+
+		//
+		// Prefer the method based setter, which is necessary for more
+		// complex properties. Otherwise use the field based setter,
+		// assuming the property is simple enough to convert to object
+		// instance.
+		//
+		PropertySetter setter;
+		if (property.setterMethod != null) {
+			setter = createMethodSetter(target, propertyName,
+					property.setterMethod);
+		} else {
+			setter = createFieldSetter(target, propertyName, property.field);
+		}
+
+		Map<String, String> targetValues = getAppliedValues(target);
+		synchronized (targetValues) {
+			//
+			// Skip the write if the same raw value has already been
+			// applied to the property. Re-applying an unchanged
+			// configuration then neither converts the value nor invokes
+			// the setter again.
+			//
+			String appliedValue = targetValues.get(propertyName);
+			if (propertyValue != null && propertyValue.equals(appliedValue)) {
+				skippedWriteCount.incrementAndGet();
+				if (log.isLoggable(Level.FINE)) {
+					trace("skipping unchanged property %s", propertyName);
+				}
+				return;
+			}
+
+			applyProperty(target, targetValues, propertyName, propertyValue,
+					setter);
+		}
+	}
+
+	/**
+	 * Sets the property value using the given setter and remembers it as
+	 * applied. If the setter fails, the previously applied value is
+	 * forgotten, because the property may have been left in an unknown
+	 * state. The caller must hold the lock of the applied values map.
+	 *
+	 * @param target
+	 *	  configurable object
+	 * @param targetValues
+	 *	  raw values applied to the properties of the object
+	 * @param propertyName
+	 *	  property name
+	 * @param propertyValue
+	 *	  raw value to apply
+	 * @param setter
+	 *	  setter bound to the target object and property
+	 * @throws ConfigurationException
+	 *	  if the setter fails
+	 */
+	private static void applyProperty(Object target,
+			Map<String, String> targetValues, String propertyName,
+			String propertyValue, PropertySetter setter) {
+		String appliedValue = targetValues.get(propertyName);
+		try {
+			setter.setValue(propertyValue);
+		} catch(RuntimeException setterException) {
+			targetValues.remove(propertyName);
+			diagnostics.failedProperty(target.getClass(), propertyName,
+					setterException);
+			throw setterException;
+		}
+		if (propertyValue != null) {
+			targetValues.put(propertyName, propertyValue);
+		} else {
+			targetValues.remove(propertyName);
+		}
+		appliedWriteCount.incrementAndGet();
+		recordChange(target, propertyName, appliedValue, propertyValue);
+	}
+
+	/**
+	 * Map with weakly held keys compared by identity. Unlike
+	 * {@link java.util.WeakHashMap}, the map does not rely on the
+	 * {@code equals()} and {@code hashCode()} methods of the keys, so that
+	 * distinct configurable objects never share an entry.
+	 * <p>
+	 * Lookups take no lock and do not allocate: the buckets hold immutable
+	 * chains of weak references, which are compared with the key by
+	 * identity. Updates replace the chains under the map lock and expunge
+	 * entries of garbage collected keys.
+	 */
+	static class WeakIdentityMap<V> {
+		private static final int INITIAL_CAPACITY = 16;
+
+		private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+		private volatile AtomicReferenceArray<Entry<V>> buckets =
+				new AtomicReferenceArray<>(INITIAL_CAPACITY);
+		private int size;
+
+		/**
+		 * Returns the value associated with the given key, or {@code null}
+		 * if there is no such value.
+		 */
+		V get(Object key) {
+			int hash = System.identityHashCode(key);
+			AtomicReferenceArray<Entry<V>> currentBuckets = buckets;
+			Entry<V> entry = currentBuckets.get(
+					hash & (currentBuckets.length() - 1));
+			while (entry != null) {
+				if (entry.hash == hash && entry.get() == key) {
+					return entry.value;
+				}
+				entry = entry.next;
+			}
+			return null;
+		}
+
+		/**
+		 * Associates the given value with the given key, unless the key
+		 * already has a value associated. Callers should try
+		 * {@link #get(Object)} first, to avoid creating values needlessly.
+		 *
+		 * @return
+		 *	  the value associated with the key after the call
+		 */
+		synchronized V putIfAbsent(Object key, V value) {
+			V currentValue = get(key);
+			if (currentValue != null) {
+				return currentValue;
+			}
+
+			expunge();
+			if (size >= buckets.length() * 3 / 4) {
+				resize();
+			}
+			int hash = System.identityHashCode(key);
+			int index = hash & (buckets.length() - 1);
+			buckets.set(index, new Entry<V>(key, hash, value,
+					buckets.get(index), queue));
+			size++;
+			return value;
+		}
+
+		private void expunge() {
+			Reference<?> reference;
+			while ((reference = queue.poll()) != null) {
+				removeEntry((Entry<?>) reference);
+			}
+		}
+
+		/**
+		 * Removes the given entry by copying the part of its chain which
+		 * precedes the entry, so that concurrent lookups always see
+		 * a consistent chain.
+		 */
+		private void removeEntry(Entry<?> removedEntry) {
+			int index = removedEntry.hash & (buckets.length() - 1);
+			Entry<V> head = buckets.get(index);
+			for (Entry<V> entry = head; entry != null; entry = entry.next) {
+				if (entry != removedEntry) {
+					continue;
+				}
+
+				Entry<V> newHead = entry.next;
+				for (Entry<V> copied = head; copied != entry;
+						copied = copied.next) {
+					Object key = copied.get();
+					if (key != null) {
+						newHead = new Entry<V>(key, copied.hash,
+								copied.value, newHead, queue);
+					} else {
+						size--;
+					}
+				}
+				buckets.set(index, newHead);
+				size--;
+				return;
+			}
+		}
+
+		/**
+		 * Doubles the number of buckets. The entries are copied, because
+		 * the chains of the old buckets may still be read by concurrent
+		 * lookups. The old entries are no longer found in the buckets, so
+		 * expunging them later has no effect.
+		 */
+		private void resize() {
+			AtomicReferenceArray<Entry<V>> newBuckets =
+					new AtomicReferenceArray<>(buckets.length() * 2);
+			int newSize = 0;
+			for (int index = 0; index < buckets.length(); index++) {
+				for (Entry<V> entry = buckets.get(index); entry != null;
+						entry = entry.next) {
+					Object key = entry.get();
+					if (key == null) {
+						continue;
+					}
+					int newIndex = entry.hash & (newBuckets.length() - 1);
+					newBuckets.set(newIndex, new Entry<V>(key, entry.hash,
+							entry.value, newBuckets.get(newIndex), queue));
+					newSize++;
+				}
+			}
+
+			buckets = newBuckets;
+			size = newSize;
+		}
+
+		/**
+		 * Immutable chain entry holding the key weakly. The hash code is
+		 * kept so that the entry can be located after the key has been
+		 * collected.
+		 */
+		private static final class Entry<V> extends WeakReference<Object> {
+			private final int hash;
+			private final V value;
+			private final Entry<V> next;
+
+			Entry(Object key, int hash, V value, Entry<V> next,
+					ReferenceQueue<Object> queue) {
+				super(key, queue);
+				this.hash = hash;
+				this.value = value;
+				this.next = next;
+			}
+		}
+	}
+
+
+	/* ***********************************************************************
+	 * Change notification
+	 * ***********************************************************************/
+
+	/**
+	 * Listener notified about changes of configurable properties. All changes
+	 * made during a single batch are delivered in a single call, with at most
+	 * one change per property. Notifications are delivered asynchronously on
+	 * the change notification executor, one at a time and in the order in
+	 * which the batches completed.
+	 */
+	public interface PropertyChangeListener {
+		void propertiesChanged(List<PropertyChange> changes);
+	}
+
+
+	/**
+	 * Describes a change of a configurable property value.
+	 */
+	public static final class PropertyChange {
+		private final Object target;
+		private final String propertyName;
+		private final String oldValue;
+		private final String newValue;
+
+		PropertyChange(Object target, String propertyName, String oldValue,
+				String newValue) {
+			this.target = target;
+			this.propertyName = propertyName;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+
+		/**
+		 * Returns the configurable object whose property has changed.
+		 */
+		public Object getTarget() {
+			return target;
+		}
+
+		/**
+		 * Returns the name of the changed property.
+		 */
+		public String getPropertyName() {
+			return propertyName;
+		}
+
+		/**
+		 * Returns the raw value applied to the property before the change,
+		 * or {@code null} if the value was not set by the configurator.
+		 */
+		public String getOldValue() {
+			return oldValue;
+		}
+
+		/**
+		 * Returns the raw value applied to the property by the change.
+		 */
+		public String getNewValue() {
+			return newValue;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %s -> %s", propertyName, oldValue,
+					newValue);
+		}
+	}
+
+
+	/**
+	 * Registration of a listener for a single property or for all properties
+	 * with a common name prefix. Closing the registration removes the
+	 * listener.
+	 * <p>
+	 * The observed object is held weakly, but the listener is held strongly
+	 * until the registration is closed. A listener which refers to the
+	 * observed object, e.g. the object itself or a lambda capturing it,
+	 * therefore keeps the object reachable, and the registration must be
+	 * closed explicitly for the object to be garbage collected.
+	 */
+	public static final class ChangeRegistration implements AutoCloseable {
+		private final List<ChangeRegistration> registrations;
+		private final String propertyName;
+		private final boolean isPrefix;
+		private final PropertyChangeListener listener;
+
+		ChangeRegistration(List<ChangeRegistration> registrations,
+				String propertyName, boolean isPrefix,
+				PropertyChangeListener listener) {
+			this.registrations = registrations;
+			this.propertyName = propertyName;
+			this.isPrefix = isPrefix;
+			this.listener = listener;
+		}
+
+		/**
+		 * Removes the listener registration. Closing a closed registration
+		 * has no effect.
+		 */
+		@Override
+		public void close() {
+			registrations.remove(this);
+		}
+
+		boolean matches(String changedPropertyName) {
+			if (isPrefix) {
+				return changedPropertyName.startsWith(propertyName);
+			}
+			return changedPropertyName.equals(propertyName);
+		}
+	}
+
+
+	/**
+	 * Collects property changes made during a batch and notifies the
+	 * listeners when the batch completes. Multiple changes of the same
+	 * property are coalesced into a single change.
+	 */
+	private static class ChangeBatch {
+		private final Map<Object, Map<String, PropertyChange>> changes =
+				new IdentityHashMap<>();
+
+		void add(PropertyChange change) {
+			Map<String, PropertyChange> targetChanges =
+					changes.get(change.target);
+			if (targetChanges == null) {
+				targetChanges = new LinkedHashMap<>();
+				changes.put(change.target, targetChanges);
+			}
+
+			//
+			// Keep the value from before the first change of the property
+			// within the batch.
+			//
+			PropertyChange previousChange =
+					targetChanges.get(change.propertyName);
+			if (previousChange != null) {
+				change = new PropertyChange(change.target,
+						change.propertyName, previousChange.oldValue,
+						change.newValue);
+			}
+			targetChanges.put(change.propertyName, change);
+		}
+
+		void dispatch() {
+			//
+			// Collect the changes matching the registrations of each
+			// listener, so that every listener is notified only once.
+			//
+			Map<PropertyChangeListener, List<PropertyChange>> notifications =
+					new IdentityHashMap<>();
+			for (Map.Entry<Object, Map<String, PropertyChange>> entry :
+					changes.entrySet()) {
+				List<ChangeRegistration> registrations =
+						changeListeners.get(entry.getKey());
+				if (registrations == null) {
+					continue;
+				}
+				for (PropertyChange change : entry.getValue().values()) {
+					if (change.oldValue != null
+							&& change.oldValue.equals(change.newValue)) {
+						continue;
+					}
+					addMatchingChange(notifications, registrations, change);
+				}
+			}
+
+			for (Map.Entry<PropertyChangeListener, List<PropertyChange>>
+					notification : notifications.entrySet()) {
+				notifyListener(notification.getKey(),
+						Collections.unmodifiableList(notification.getValue()));
+			}
+		}
+
+		private static void addMatchingChange(
+				Map<PropertyChangeListener, List<PropertyChange>> notifications,
+				List<ChangeRegistration> registrations,
+				PropertyChange change) {
+			for (ChangeRegistration registration : registrations) {
+				if (!registration.matches(change.propertyName)) {
+					continue;
+				}
+				List<PropertyChange> listenerChanges =
+						notifications.get(registration.listener);
+				if (listenerChanges == null) {
+					listenerChanges = new ArrayList<>();
+					notifications.put(registration.listener,
+							listenerChanges);
+				}
+				//
+				// A listener registered several times for the same property
+				// receives the change only once.
+				//
+				int lastIndex = listenerChanges.size() - 1;
+				if (lastIndex < 0 || listenerChanges.get(lastIndex) != change) {
+					listenerChanges.add(change);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Records a property change made by the configurator. If no batch is
+	 * running on the current thread, the listeners are notified immediately.
+	 */
+	private static void recordChange(Object target, String propertyName,
+			String oldValue, String newValue) {
+		if (!hasChangeListeners || changeListeners.get(target) == null) {
+			return;
+		}
+
+		PropertyChange change = new PropertyChange(target, propertyName,
+				oldValue, newValue);
+		ChangeBatch batch = currentBatch.get();
+		if (batch != null) {
+			batch.add(change);
+		} else {
+			batch = new ChangeBatch();
+			batch.add(change);
+			batch.dispatch();
+		}
+	}
+
+	private static ChangeRegistration addChangeRegistration(Object target,
+			String propertyName, boolean isPrefix,
+			PropertyChangeListener listener) {
+		if (propertyName == null || listener == null) {
+			throw new IllegalArgumentException(
+					"property name and listener must not be null");
+		}
+
+		List<ChangeRegistration> registrations = changeListeners.get(target);
+		if (registrations == null) {
+			registrations = changeListeners.putIfAbsent(target,
+					new CopyOnWriteArrayList<ChangeRegistration>());
+		}
+		ChangeRegistration registration = new ChangeRegistration(
+				registrations, propertyName, isPrefix, listener);
+		registrations.add(registration);
+		hasChangeListeners = true;
+		return registration;
+	}
+
+	/**
+	 * Queues the given changes for delivery to the given listener on the
+	 * notification executor. Exceptions thrown by the listener are logged,
+	 * errors propagate to the executor.
+	 */
+	private static void notifyListener(final PropertyChangeListener listener,
+			final List<PropertyChange> changes) {
+		NotificationQueue queue = notificationQueues.get(listener);
+		if (queue == null) {
+			queue = notificationQueues.putIfAbsent(listener,
+					new NotificationQueue());
+		}
+
+		queue.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					listener.propertiesChanged(changes);
+				} catch(RuntimeException listenerException) {
+					log.log(Level.WARNING, "Property change listener failed",
+							listenerException);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Pending notifications of a single listener. The notifications are
+	 * delivered by a single task on the notification executor at a time,
+	 * so that the listener receives them one by one and in order.
+	 */
+	private static final class NotificationQueue implements Runnable {
+		private final Queue<Runnable> notifications = new ArrayDeque<>();
+		private boolean isDraining;
+
+		void submit(Runnable notification) {
+			synchronized (this) {
+				notifications.add(notification);
+				if (isDraining) {
+					return;
+				}
+				isDraining = true;
+			}
+			schedule();
+		}
+
+		/**
+		 * Starts the task delivering the pending notifications. If the
+		 * executor rejects the task, the pending notifications are dropped.
+		 */
+		private void schedule() {
+			try {
+				notificationExecutor.execute(this);
+			} catch(RejectedExecutionException rejectedException) {
+				synchronized (this) {
+					notifications.clear();
+					isDraining = false;
+				}
+				log.log(Level.WARNING, "Unable to deliver property change "
+						+ "notification", rejectedException);
+			}
+		}
+
+		@Override
+		public void run() {
+			boolean isDrained = false;
+			try {
+				while (true) {
+					Runnable notification;
+					synchronized (this) {
+						notification = notifications.poll();
+						if (notification == null) {
+							isDraining = false;
+							isDrained = true;
+							return;
+						}
+					}
+					notification.run();
+				}
+			} finally {
+				if (!isDrained) {
+					//
+					// A notification failed with an error. Let the error
+					// propagate, but keep delivering the remaining
+					// notifications in a new task.
+					//
+					boolean hasPending;
+					synchronized (this) {
+						hasPending = !notifications.isEmpty();
+						isDraining = hasPending;
+					}
+					if (hasPending) {
+						schedule();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the default change notification executor, which runs each
+	 * notification on a new virtual thread. On platforms without virtual
+	 * threads, the notifications run on a pool of daemon threads.
+	 */
+	private static Executor makeDefaultNotificationExecutor() {
+		try {
+			Method factoryMethod = Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor");
+			return (Executor) factoryMethod.invoke(null);
+		} catch(Exception anyException) {
+			/* quell the exception, virtual threads are not available */
+		}
+
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable,
+						"configurator-notification");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+
+	/* ***********************************************************************
+	 * ComponentGraph
+	 * ***********************************************************************/
+
+	/**
+	 * Graph of named configurable components whose properties may reference
+	 * other components of the graph. A property value of the form
+	 * {@code @name} is a reference to the component called {@code name}.
+	 * <p>
+	 * The graph configures each component only after all the components it
+	 * references have been configured and validated, and configures
+	 * independent components concurrently. A reference is resolved to the
+	 * referenced component instance if the property is held in a field that
+	 * can hold the instance and the component has no {@link Setter} method
+	 * for the property. Otherwise the raw reference is set as the property
+	 * value.
+	 */
+	public static class ComponentGraph {
+
+		/**
+		 * Prefix of property values referencing other components.
+		 */
+		public static final String REFERENCE_PREFIX = "@";
+
+		private final Map<String, Component> components =
+				new LinkedHashMap<>();
+
+		/**
+		 * Adds a component to the graph.
+		 *
+		 * @param name
+		 *	  unique name of the component
+		 * @param target
+		 *	  configurable object
+		 * @param properties
+		 *	  property values of the component keyed by property names
+		 * @throws ConfigurationException
+		 *	  if the graph already contains a component with the given name
+		 */
+		public void addComponent(String name, Object target,
+				Map<String, String> properties) {
+			if (components.containsKey(name)) {
+				throw new ConfigurationException(
+						"Duplicate component '%s'", name);
+			}
+			components.put(name, new Component(name, target,
+					new LinkedHashMap<>(properties)));
+		}
+
+		/**
+		 * Configures and validates all components of the graph on the
+		 * common fork/join pool.
+		 *
+		 * @return
+		 *	  timing report of the configuration
+		 * @throws ConfigurationException
+		 *	  if the graph contains a reference cycle or a reference to
+		 *	  an unknown component, or if any component cannot be
+		 *	  configured
+		 */
+		public Report configure() {
+			return configure(ForkJoinPool.commonPool());
+		}
+
+		/**
+		 * Configures and validates all components of the graph on the given
+		 * executor. Each component is configured as a single
+		 * {@link Configurator#runBatch(Runnable) batch} and validated as soon
+		 * as its properties are set. When a component fails, no further
+		 * components are started and the method fails after the running
+		 * components complete.
+		 *
+		 * @param executor
+		 *	  executor configuring the components
+		 * @return
+		 *	  timing report of the configuration
+		 * @throws ConfigurationException
+		 *	  if the graph contains a reference cycle or a reference to
+		 *	  an unknown component, or if any component cannot be
+		 *	  configured
+		 */
+		public Report configure(Executor executor) {
+			Map<String, Node> nodes = makeNodes();
+			checkAcyclic(nodes);
+
+			GraphRun run = new GraphRun(executor, nodes.size());
+			long startNanos = System.nanoTime();
+			for (Node node : nodes.values()) {
+				if (node.dependencies.isEmpty()) {
+					run.schedule(node);
+				}
+			}
+			run.await();
+			long wallNanos = System.nanoTime() - startNanos;
+
+			//
+			// Component failures already name the component, so they are
+			// rethrown as they are.
+			//
+			Throwable failure = run.failure.get();
+			if (failure instanceof ConfigurationException) {
+				throw (ConfigurationException) failure;
+			}
+			if (failure != null) {
+				wrap(failure, "Unable to configure component graph");
+			}
+			return new Report(nodes, wallNanos);
+		}
+
+		/**
+		 * Creates graph nodes for all components and links them according
+		 * to the references in the component properties.
+		 */
+		private Map<String, Node> makeNodes() {
+			Map<String, Node> nodes = new LinkedHashMap<>();
+			for (Component component : components.values()) {
+				nodes.put(component.name, new Node(component));
+			}
+
+			for (Node node : nodes.values()) {
+				for (Map.Entry<String, String> property :
+						node.component.properties.entrySet()) {
+					String referencedName = getReferencedName(
+							property.getValue());
+					if (referencedName == null) {
+						continue;
+					}
+
+					Node dependency = nodes.get(referencedName);
+					if (dependency == null) {
+						throw new ConfigurationException(
+								"component %s: property %s references "
+								+ "unknown component '%s'",
+								node.component.name, property.getKey(),
+								referencedName);
+					}
+					if (!node.dependencies.contains(dependency)) {
+						node.dependencies.add(dependency);
+						dependency.dependents.add(node);
+					}
+				}
+				node.pendingDependencies.set(node.dependencies.size());
+			}
+			return nodes;
+		}
+
+		/**
+		 * Makes sure that the component references do not form a cycle,
+		 * which would prevent some components from ever being configured.
+		 */
+		private static void checkAcyclic(Map<String, Node> nodes) {
+			//
+			// Repeatedly remove nodes without pending dependencies. The
+			// nodes that cannot be removed are part of or depend on
+			// a cycle.
+			//
+			Map<Node, Integer> pending = new HashMap<>();
+			List<Node> ready = new ArrayList<>();
+			for (Node node : nodes.values()) {
+				pending.put(node, node.dependencies.size());
+				if (node.dependencies.isEmpty()) {
+					ready.add(node);
+				}
+			}
+
+			while (!ready.isEmpty()) {
+				Node node = ready.remove(ready.size() - 1);
+				pending.remove(node);
+				for (Node dependent : node.dependents) {
+					int dependentPending = pending.get(dependent) - 1;
+					pending.put(dependent, dependentPending);
+					if (dependentPending == 0) {
+						ready.add(dependent);
+					}
+				}
+			}
+
+			if (!pending.isEmpty()) {
+				List<String> names = new ArrayList<>();
+				for (Node node : pending.keySet()) {
+					names.add(node.component.name);
+				}
+				Collections.sort(names);
+				throw new ConfigurationException(
+						"Component references form a cycle among %s", names);
+			}
+		}
+
+		/**
+		 * Returns the name of the component referenced by the given property
+		 * value, or {@code null} if the value is not a reference.
+		 */
+		private static String getReferencedName(String propertyValue) {
+			if (propertyValue == null
+					|| !propertyValue.startsWith(REFERENCE_PREFIX)) {
+				return null;
+			}
+			return propertyValue.substring(REFERENCE_PREFIX.length());
+		}
+
+
+		/**
+		 * Timing report of a component graph configuration.
+		 */
+		public static final class Report {
+			private final long wallNanos;
+			private final long criticalPathNanos;
+			private final List<String> criticalPath;
+			private final Map<String, Long> componentNanos;
+
+			Report(Map<String, Node> nodes, long wallNanos) {
+				this.wallNanos = wallNanos;
+
+				//
+				// The critical path ends in the node which finished last
+				// when only its own and its dependencies' configuration
+				// times are taken into account.
+				//
+				Map<String, Long> durations = new LinkedHashMap<>();
+				Node last = null;
+				for (Node node : nodes.values()) {
+					durations.put(node.component.name, node.durationNanos);
+					if (last == null
+							|| node.pathNanos > last.pathNanos) {
+						last = node;
+					}
+				}
+
+				List<String> path = new ArrayList<>();
+				for (Node node = last; node != null;
+						node = node.pathPredecessor) {
+					path.add(node.component.name);
+				}
+				Collections.reverse(path);
+
+				criticalPathNanos = (last != null) ? last.pathNanos : 0;
+				criticalPath = Collections.unmodifiableList(path);
+				componentNanos = Collections.unmodifiableMap(durations);
+			}
+
+			/**
+			 * Returns the elapsed time of the whole configuration.
+			 */
+			public long getWallNanos() {
+				return wallNanos;
+			}
+
+			/**
+			 * Returns the sum of configuration times of the components on
+			 * the critical path, i.e. the lower bound of the configuration
+			 * time regardless of the available parallelism.
+			 */
+			public long getCriticalPathNanos() {
+				return criticalPathNanos;
+			}
+
+			/**
+			 * Returns the names of the components on the critical path,
+			 * starting with a component without dependencies.
+			 */
+			public List<String> getCriticalPath() {
+				return criticalPath;
+			}
+
+			/**
+			 * Returns configuration times of individual components keyed by
+			 * component names.
+			 */
+			public Map<String, Long> getComponentNanos() {
+				return componentNanos;
+			}
+
+			@Override
+			public String toString() {
+				return String.format("wall %d ms, critical path %d ms %s",
+						TimeUnit.NANOSECONDS.toMillis(wallNanos),
+						TimeUnit.NANOSECONDS.toMillis(criticalPathNanos),
+						criticalPath);
+			}
+		}
+
+
+		/**
+		 * Named configurable object with its property values.
+		 */
+		private static class Component {
+			private final String name;
+			private final Object target;
+			private final Map<String, String> properties;
+
+			Component(String name, Object target,
+					Map<String, String> properties) {
+				this.name = name;
+				this.target = target;
+				this.properties = properties;
+			}
+		}
+
+
+		/**
+		 * Component in a single configuration run along with its
+		 * dependencies and timing.
+		 */
+		private static class Node {
+			private final Component component;
+			private final List<Node> dependencies = new ArrayList<>();
+			private final List<Node> dependents = new ArrayList<>();
+			private final AtomicInteger pendingDependencies =
+					new AtomicInteger();
+
+			private long durationNanos;
+			private long pathNanos;
+			private Node pathPredecessor;
+
+			Node(Component component) {
+				this.component = component;
+			}
+
+			/**
+			 * Sets the component properties, resolving references to other
+			 * components, and validates the component.
+			 */
+			void configure() {
+				final Object target = component.target;
+				runBatch(new Runnable() {
+					@Override
+					public void run() {
+						for (Map.Entry<String, String> property :
+								component.properties.entrySet()) {
+							setComponentProperty(target, property.getKey(),
+									property.getValue());
+						}
+					}
+				});
+				checkConfigurableFields(target);
+			}
+
+			private void setComponentProperty(Object target,
+					String propertyName, String propertyValue) {
+				Object reference = null;
+				String referencedName = getReferencedName(propertyValue);
+				for (Node dependency : dependencies) {
+					if (dependency.component.name.equals(referencedName)) {
+						reference = dependency.component.target;
+					}
+				}
+
+				Class<?> targetClass = target.getClass();
+				PropertyEntry property = getClassProperties(
+						targetClass).findProperty(propertyName);
+				if (property == null) {
+					diagnostics.unknownProperty(targetClass, propertyName);
+					return;
+				}
+				if (reference == null || property.setterMethod != null
+						|| !property.field.getType().isInstance(reference)) {
+					setPropertyValue(target, property, propertyValue);
+					return;
+				}
+
+				//
+				// Inject the referenced component. The write is never
+				// skipped, because the same reference may resolve to
+				// a different instance than before.
+				//
+				PropertySetter setter = makeInstanceSetter(target,
+						property.name, property.field, reference);
+				Map<String, String> targetValues = getAppliedValues(target);
+				synchronized (targetValues) {
+					applyProperty(target, targetValues, property.name,
+							propertyValue, setter);
+				}
+			}
+		}
+
+
+		/**
+		 * State of a single configuration run shared by the tasks
+		 * configuring the individual components.
+		 */
+		private static class GraphRun {
+			private final Executor executor;
+			private final CountDownLatch remaining;
+			private final AtomicReference<Throwable> failure =
+					new AtomicReference<>();
+
+			GraphRun(Executor executor, int componentCount) {
+				this.executor = executor;
+				this.remaining = new CountDownLatch(componentCount);
+			}
+
+			/**
+			 * Nodes released on the current thread while it is completing
+			 * a node, or {@code null} if the thread is not completing any.
+			 * An executor running the tasks on the submitting thread would
+			 * otherwise nest one task per node of a dependency chain.
+			 */
+			private final ThreadLocal<Queue<Node>> releasedNodes =
+					new ThreadLocal<>();
+
+			/**
+			 * Submits the configuration of the given node, whose
+			 * dependencies have all completed. If the executor does not
+			 * accept the task, the node and all nodes depending on it are
+			 * skipped.
+			 */
+			void schedule(final Node node) {
+				Runnable task = new Runnable() {
+					@Override
+					public void run() {
+						completeAll(node);
+					}
+				};
+
+				try {
+					executor.execute(task);
+				} catch(Throwable anyThrowable) {
+					failure.compareAndSet(null, anyThrowable);
+					skip(node);
+				}
+			}
+
+			/**
+			 * Completes the given node and the nodes released on the
+			 * current thread meanwhile.
+			 */
+			private void completeAll(Node node) {
+				Queue<Node> released = releasedNodes.get();
+				if (released != null) {
+					released.add(node);
+					return;
+				}
+
+				released = new ArrayDeque<>();
+				releasedNodes.set(released);
+				try {
+					do {
+						complete(node);
+					} while ((node = released.poll()) != null);
+				} finally {
+					releasedNodes.remove();
+				}
+			}
+
+			/**
+			 * Configures the given node unless an earlier node has failed,
+			 * and schedules the dependents which became ready. Once a node
+			 * has failed, the dependents are skipped instead.
+			 */
+			private void complete(Node node) {
+				try {
+					if (failure.get() == null) {
+						configureNode(node);
+					}
+				} finally {
+					remaining.countDown();
+				}
+
+				for (Node dependent : node.dependents) {
+					if (dependent.pendingDependencies.decrementAndGet() != 0) {
+						continue;
+					}
+					if (failure.get() == null) {
+						schedule(dependent);
+					} else {
+						skip(dependent);
+					}
+				}
+			}
+
+			/**
+			 * Completes the given node and all nodes depending on it
+			 * without configuring them. The nodes are visited using
+			 * a work list, so that long dependency chains do not exhaust
+			 * the stack.
+			 */
+			private void skip(Node node) {
+				Queue<Node> skipped = new ArrayDeque<>();
+				skipped.add(node);
+				while ((node = skipped.poll()) != null) {
+					remaining.countDown();
+					for (Node dependent : node.dependents) {
+						if (dependent.pendingDependencies
+								.decrementAndGet() == 0) {
+							skipped.add(dependent);
+						}
+					}
+				}
+			}
+
+			private void configureNode(Node node) {
+				long startNanos = System.nanoTime();
+				try {
+					trace("configuring component %s", node.component.name);
+					node.configure();
+				} catch(Throwable anyThrowable) {
+					failure.compareAndSet(null, new ConfigurationException(
+							anyThrowable, "Unable to configure component %s",
+							node.component.name));
+					return;
+				}
+				node.durationNanos = System.nanoTime() - startNanos;
+
+				//
+				// All dependencies have completed before the node was
+				// scheduled, so their path lengths are final.
+				//
+				for (Node dependency : node.dependencies) {
+					if (node.pathPredecessor == null || dependency.pathNanos
+							> node.pathPredecessor.pathNanos) {
+						node.pathPredecessor = dependency;
+					}
+				}
+				node.pathNanos = node.durationNanos;
+				if (node.pathPredecessor != null) {
+					node.pathNanos += node.pathPredecessor.pathNanos;
+				}
+			}
+
+			/**
+			 * Waits until all nodes complete.
+			 */
+			void await() {
+				try {
+					remaining.await();
+				} catch(InterruptedException interruptedException) {
+					Thread.currentThread().interrupt();
+					wrap(interruptedException,
+							"Interrupted while configuring component graph");
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Returns a {@link PropertySetter} which sets the given field of the
+	 * given object to the given instance, ignoring the raw property value.
+	 *
+	 * @param target
+	 *	  target object on which to set the field value
+	 * @param propertyName
+	 *	  name of the property being configured
+	 * @param field
+	 *	  the field to set
+	 * @param instance
+	 *	  instance of the field type to set the field to
+	 * @return
+	 *	  {@link PropertySetter} setting the field to the instance
+	 */
+	private static PropertySetter makeInstanceSetter(final Object target,
+			final String propertyName, final Field field,
+			final Object instance) {
+		return new PropertySetter() {
+			@Override
+			public void setValue(String value) throws ConfigurationException {
+				trace("setting field property %s to instance of %s",
+						propertyName, instance.getClass().getName());
+				try {
+					setObjectFieldValue(target, field, instance);
+				} catch(Exception anyException) {
+					wrap(anyException, "Unable to configure field %s with "
+							+ "property %s=%s", field.getName(), propertyName,
+							value);
+				}
+			}
+		};
+	}
+
+
+	/* ***********************************************************************
+	 * PropertyDiagnostics
+	 * ***********************************************************************/
+
+	/**
+	 * Sink collecting diagnostics about unknown properties and properties
+	 * which could not be set. Occurrences are counted per class and property
+	 * name, and warnings are logged through {@link Configurator#log} at
+	 * a limited rate: the first occurrence of each property is logged
+	 * immediately, further occurrences at most once per emission interval,
+	 * and no more than a fixed number of warnings are logged per interval
+	 * in total. Counting an occurrence which is not logged neither allocates
+	 * nor locks once the property has been seen.
+	 * <p>
+	 * The counters are attached to the target classes, so they do not keep
+	 * the classes from being unloaded. The number of tracked properties is
+	 * limited; occurrences of properties beyond the limit are only counted
+	 * in total.
+	 */
+	public static final class PropertyDiagnostics {
+
+		/**
+		 * Kind of a property diagnostic.
+		 */
+		public enum Kind {
+			/** property unknown to the target class */
+			UNKNOWN,
+			/** property whose value could not be set */
+			FAILED
+		}
+
+		private final ClassValue<ClassCounters> classCounters =
+				new ClassValue<ClassCounters>() {
+					@Override
+					protected ClassCounters computeValue(Class<?> type) {
+						ClassCounters counters = new ClassCounters();
+						allClassCounters.add(new CountersReference(counters,
+								collectedCounters));
+						return counters;
+					}
+				};
+
+		/**
+		 * Counters of all classes for snapshots, held weakly so that the
+		 * classes can be unloaded. The counters of unloaded classes are
+		 * enqueued, so that their properties stop counting towards the
+		 * tracking limit.
+		 */
+		private final Queue<CountersReference> allClassCounters =
+				new ConcurrentLinkedQueue<>();
+		private final ReferenceQueue<ClassCounters> collectedCounters =
+				new ReferenceQueue<>();
+
+		private final AtomicInteger trackedCount = new AtomicInteger();
+		private final AtomicLong untrackedCount = new AtomicLong();
+		private volatile int maxTrackedProperties = 1000;
+
+		private volatile long emissionIntervalNanos =
+				TimeUnit.MINUTES.toNanos(1);
+		private volatile int maxEmissionsPerInterval = 20;
+
+		private long windowStartNanos = System.nanoTime();
+		private int windowEmissions;
+
+		/**
+		 * Determines whether the warning budget of the current interval is
+		 * exhausted until {@link #budgetExhaustedUntilNanos}, which lets
+		 * occurrences skip the locks until the interval ends.
+		 */
+		private volatile boolean isBudgetExhausted;
+		private volatile long budgetExhaustedUntilNanos;
+
+		PropertyDiagnostics() {
+		}
+
+		/**
+		 * Sets the warning emission limits.
+		 *
+		 * @param maxEmissions
+		 *	  maximal number of warnings logged per interval
+		 * @param interval
+		 *	  length of the interval, also the minimal delay between
+		 *	  warnings about the same property
+		 * @param unit
+		 *	  unit of the interval
+		 */
+		public void setEmissionLimit(int maxEmissions, long interval,
+				TimeUnit unit) {
+			if (maxEmissions < 0 || interval < 0) {
+				throw new IllegalArgumentException(
+						"emission limit must not be negative");
+			}
+			maxEmissionsPerInterval = maxEmissions;
+			emissionIntervalNanos = unit.toNanos(interval);
+			isBudgetExhausted = false;
+		}
+
+		/**
+		 * Sets the maximal number of distinct properties tracked by the
+		 * sink. The default is 1000.
+		 *
+		 * @param maxProperties
+		 *	  maximal number of tracked properties
+		 */
+		public void setTrackingLimit(int maxProperties) {
+			if (maxProperties < 0) {
+				throw new IllegalArgumentException(
+						"tracking limit must not be negative");
+			}
+			maxTrackedProperties = maxProperties;
+		}
+
+		/**
+		 * Returns the summary of all diagnostics collected so far, with the
+		 * most frequent ones first.
+		 *
+		 * @return
+		 *	  list of diagnostic summaries
+		 */
+		public List<Summary> snapshot() {
+			List<Summary> summaries = new ArrayList<>();
+			for (ClassCounters counters : getAllClassCounters()) {
+				addSummaries(summaries, counters.unknown);
+				addSummaries(summaries, counters.failed);
+			}
+			Collections.sort(summaries, new Comparator<Summary>() {
+				@Override
+				public int compare(Summary first, Summary second) {
+					return Long.compare(second.count, first.count);
+				}
+			});
+			return summaries;
+		}
+
+		/**
+		 * Returns the number of occurrences of properties which were not
+		 * tracked individually because of the tracking limit.
+		 *
+		 * @return
+		 *	  number of untracked occurrences
+		 */
+		public long getUntrackedCount() {
+			return untrackedCount.get();
+		}
+
+		/**
+		 * Discards all collected diagnostics and restarts the warning
+		 * emission interval.
+		 */
+		public void reset() {
+			synchronized (this) {
+				windowStartNanos = System.nanoTime();
+				windowEmissions = 0;
+				isBudgetExhausted = false;
+			}
+			for (ClassCounters counters : getAllClassCounters()) {
+				counters.unknown.clear();
+				counters.failed.clear();
+				counters.trackedCount.set(0);
+			}
+			trackedCount.set(0);
+			untrackedCount.set(0);
+		}
+
+		/**
+		 * Records an occurrence of a property unknown to the given class.
+		 */
+		void unknownProperty(Class<?> targetClass, String propertyName) {
+			Counter counter = getCounter(Kind.UNKNOWN, targetClass,
+					propertyName);
+			if (counter == null) {
+				untrackedCount.incrementAndGet();
+				return;
+			}
+			counter.count.incrementAndGet();
+			emitIfDue(counter);
+		}
+
+		/**
+		 * Records a failure to set a property on an instance of the given
+		 * class. The failure itself is reported to the caller, so only its
+		 * message is logged.
+		 */
+		void failedProperty(Class<?> targetClass, String propertyName,
+				Throwable failure) {
+			Counter counter = getCounter(Kind.FAILED, targetClass,
+					propertyName);
+			if (counter == null) {
+				untrackedCount.incrementAndGet();
+				return;
+			}
+			counter.count.incrementAndGet();
+			counter.lastFailure = failure.getMessage();
+			emitIfDue(counter);
+		}
+
+		/**
+		 * Returns the counter of the given diagnostic, or {@code null} if
+		 * the diagnostic is not tracked and the tracking limit has been
+		 * reached.
+		 */
+		private Counter getCounter(Kind kind, Class<?> targetClass,
+				String propertyName) {
+			//
+			// Look the counter up first and only create it when missing,
+			// so that repeated occurrences do not allocate.
+			//
+			ClassCounters counters = classCounters.get(targetClass);
+			ConcurrentMap<String, Counter> kindCounters =
+					(kind == Kind.UNKNOWN) ? counters.unknown
+							: counters.failed;
+			Counter counter = kindCounters.get(propertyName);
+			if (counter != null) {
+				return counter;
+			}
+
+			expungeCollectedCounters();
+			if (trackedCount.get() >= maxTrackedProperties) {
+				return null;
+			}
+			Counter newCounter = new Counter(kind, targetClass,
+					propertyName);
+			counter = kindCounters.putIfAbsent(propertyName, newCounter);
+			if (counter == null) {
+				counters.trackedCount.incrementAndGet();
+				trackedCount.incrementAndGet();
+				counter = newCounter;
+			}
+			return counter;
+		}
+
+		/**
+		 * Releases the tracking limit taken by the properties of unloaded
+		 * classes.
+		 */
+		private void expungeCollectedCounters() {
+			Reference<? extends ClassCounters> reference;
+			while ((reference = collectedCounters.poll()) != null) {
+				CountersReference countersReference =
+						(CountersReference) reference;
+				allClassCounters.remove(countersReference);
+				trackedCount.addAndGet(
+						-countersReference.trackedCount.getAndSet(0));
+			}
+		}
+
+		/**
+		 * Logs a warning about the given counter, unless a warning about
+		 * it has been logged recently or the warning budget of the current
+		 * interval has been exhausted.
+		 */
+		private void emitIfDue(Counter counter) {
+			if (!log.isLoggable(Level.WARNING)) {
+				return;
+			}
+
+			long now = System.nanoTime();
+			long intervalNanos = emissionIntervalNanos;
+			if (counter.emitted
+					&& now - counter.lastEmittedNanos < intervalNanos) {
+				return;
+			}
+			if (isBudgetExhausted && now - budgetExhaustedUntilNanos < 0) {
+				return;
+			}
+
+			long occurrences;
+			synchronized (counter) {
+				if (counter.emitted
+						&& now - counter.lastEmittedNanos < intervalNanos) {
+					return;
+				}
+				if (!acquireEmission(now, intervalNanos)) {
+					return;
+				}
+				counter.emitted = true;
+				counter.lastEmittedNanos = now;
+				occurrences = counter.count.get();
+			}
+
+			if (counter.kind == Kind.UNKNOWN) {
+				log.log(Level.WARNING, "Unknown property {0} in {1} "
+						+ "({2} occurrences)", new Object[] {
+						counter.propertyName, counter.targetClass.getName(),
+						occurrences });
+			} else {
+				log.log(Level.WARNING, "Unable to set property {0} in {1} "
+						+ "({2} occurrences): {3}", new Object[] {
+						counter.propertyName, counter.targetClass.getName(),
+						occurrences, counter.lastFailure });
+			}
+		}
+
+		private synchronized boolean acquireEmission(long now,
+				long intervalNanos) {
+			if (now - windowStartNanos >= intervalNanos) {
+				windowStartNanos = now;
+				windowEmissions = 0;
+				isBudgetExhausted = false;
+			}
+			if (windowEmissions >= maxEmissionsPerInterval) {
+				budgetExhaustedUntilNanos = windowStartNanos + intervalNanos;
+				isBudgetExhausted = true;
+				return false;
+			}
+			windowEmissions++;
+			return true;
+		}
+
+		/**
+		 * Returns the counters of all classes which have not been unloaded.
+		 */
+		private List<ClassCounters> getAllClassCounters() {
+			expungeCollectedCounters();
+			List<ClassCounters> result = new ArrayList<>();
+			for (CountersReference reference : allClassCounters) {
+				ClassCounters counters = reference.get();
+				if (counters != null) {
+					result.add(counters);
+				}
+			}
+			return result;
+		}
+
+		private static void addSummaries(List<Summary> summaries,
+				ConcurrentMap<String, Counter> counters) {
+			for (Counter counter : counters.values()) {
+				summaries.add(new Summary(counter.kind, counter.targetClass,
+						counter.propertyName, counter.count.get(),
+						counter.lastFailure));
+			}
+		}
+
+
+		/**
+		 * Counters of the diagnostics of a single class.
+		 */
+		private static final class ClassCounters {
+			private final ConcurrentMap<String, Counter> unknown =
+					new ConcurrentHashMap<>();
+			private final ConcurrentMap<String, Counter> failed =
+					new ConcurrentHashMap<>();
+			private final AtomicInteger trackedCount = new AtomicInteger();
+		}
+
+
+		/**
+		 * Weak reference to the counters of a class, keeping the number of
+		 * properties tracked for the class after the class is unloaded.
+		 */
+		private static final class CountersReference
+				extends WeakReference<ClassCounters> {
+			private final AtomicInteger trackedCount;
+
+			CountersReference(ClassCounters counters,
+					ReferenceQueue<ClassCounters> queue) {
+				super(counters, queue);
+				this.trackedCount = counters.trackedCount;
+			}
+		}
+
+
+		/**
+		 * Occurrence counter of a single diagnostic.
+		 */
+		private static final class Counter {
+			private final Kind kind;
+			private final Class<?> targetClass;
+			private final String propertyName;
+			private final AtomicLong count = new AtomicLong();
+
+			private volatile String lastFailure;
+			private volatile boolean emitted;
+			private volatile long lastEmittedNanos;
+
+			Counter(Kind kind, Class<?> targetClass, String propertyName) {
+				this.kind = kind;
+				this.targetClass = targetClass;
+				this.propertyName = propertyName;
+			}
+		}
+
+
+		/**
+		 * Summary of a single diagnostic.
+		 */
+		public static final class Summary {
+			private final Kind kind;
+			private final Class<?> targetClass;
+			private final String propertyName;
+			private final long count;
+			private final String lastFailure;
+
+			Summary(Kind kind, Class<?> targetClass, String propertyName,
+					long count, String lastFailure) {
+				this.kind = kind;
+				this.targetClass = targetClass;
+				this.propertyName = propertyName;
+				this.count = count;
+				this.lastFailure = lastFailure;
+			}
+
+			/**
+			 * Returns the kind of the diagnostic.
+			 */
+			public Kind getKind() {
+				return kind;
+			}
+
+			/**
+			 * Returns the class of the configured objects.
+			 */
+			public Class<?> getTargetClass() {
+				return targetClass;
+			}
+
+			/**
+			 * Returns the property name.
+			 */
+			public String getPropertyName() {
+				return propertyName;
+			}
+
+			/**
+			 * Returns the number of occurrences.
+			 */
+			public long getCount() {
+				return count;
+			}
+
+			/**
+			 * Returns the message of the last failure, or {@code null} for
+			 * unknown properties.
+			 */
+			public String getLastFailure() {
+				return lastFailure;
+			}
+
+			@Override
+			public String toString() {
+				return String.format("%s %s.%s x%d", kind,
+						targetClass.getName(), propertyName, count);
+			}
+		}
+	}
+
+
+	/* ***********************************************************************
+	 * ConfigurationException
+	 * ***********************************************************************/
+
+	/**
+	 * Common exception for all configuration errors.
+	 */
+	public static class ConfigurationException extends RuntimeException {
+		private static final long serialVersionUID = 6308762387098032853L;
+		ConfigurationException(String format, Object ... args) {
+			super(String.format(format, args));
+		}
+		ConfigurationException(Throwable throwable, String format,
+				Object ... args) {
+			super(String.format(format, args), throwable);
+		}
+	}
+
+
+	/**
+	 * Wraps the given {@link Throwable} as a {@link ConfigurationException}
+	 * along with an additional formatted message.
+	 */
+	private static void wrap(Throwable throwable, String format,
+			Object ... args) {
+		throw new ConfigurationException(throwable, format, args);
+	}
+
+
+
+	/* ***********************************************************************
+	 * AllDeclaredFieldsIterable
+	 * ***********************************************************************/
+
+	/**
+	 * Provides an iterable interface to fields declared in a class hierarchy.
+	 * The provided iterator traverses the inheritance hierarchy from the given
+	 *(leaf) class to the(root) base class and returns all fields declared in
+	 * the classes along the inheritance path. The iterator(obviously) does not
+	 * support element removal, since it operates on an immutable structure.
+	 */
+	static class AllDeclaredFieldsIterable implements Iterable<Field> {
+		private Class<?> leaf;
+
+		/**
+		 * Creates an iterable for the given leaf class. If the leaf class
+		 * is {@code null}, the iterable produces an empty iterator.
+		 */
+		AllDeclaredFieldsIterable(Class<?> leafClass) {
+			leaf = leafClass;
+		}
+
+		@Override
+		public Iterator<Field> iterator() {
+			return new Iterator<Field>() {
 
 			private Class<?> klass = leaf;
 			private Iterator<Field> fields = new ArrayIterator<>(new Field[0]);
@@ -594,9 +2775,13 @@ public class Configurator {
 		// restore the previous accessibility state after that.
 		//
 		boolean fieldAccesible = field.isAccessible();
-		field.setAccessible(true);
+		if (!fieldAccesible) {
+			field.setAccessible(true);
+		}
 		Object fieldValue = field.get(target);
-		field.setAccessible(fieldAccesible);
+		if (!fieldAccesible) {
+			field.setAccessible(fieldAccesible);
+		}
 
 		return fieldValue;
 	}
@@ -620,15 +2805,19 @@ public class Configurator {
 			throws IllegalArgumentException, IllegalAccessException {
 		// method called internally, so parameters shouldn't be null
 		assert(target != null && field != null && valueInstance != null);
-		assert(field.getType() == valueInstance.getClass());
+		assert(field.getType().isInstance(valueInstance));
 		//
 		// Make the field accessible before setting its value and
 		// restore the previous accessibility state after that.
 		//
 		boolean fieldAccessible = field.isAccessible();
-		field.setAccessible(true);
+		if (!fieldAccessible) {
+			field.setAccessible(true);
+		}
 		field.set(target, valueInstance);
-		field.setAccessible(fieldAccessible);
+		if (!fieldAccessible) {
+			field.setAccessible(fieldAccessible);
+		}
 	}
 
 
@@ -700,9 +2889,13 @@ public class Configurator {
 				try {
 						boolean isMethodAccessible =
 								declaredMethod.isAccessible();
-						declaredMethod.setAccessible(true);
+						if (!isMethodAccessible) {
+							declaredMethod.setAccessible(true);
+						}
 						declaredMethod.invoke(target, value);
-						declaredMethod.setAccessible(isMethodAccessible);
+						if (!isMethodAccessible) {
+							declaredMethod.setAccessible(isMethodAccessible);
+						}
 				} catch(Exception e) {
 					wrap(e, "Unable to set property %s=%s using method %s()",
 							propertyName, value, declaredMethod.getName());
@@ -0,0 +1,243 @@
+package org.ow2.dsrg.jpmf.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import org.ow2.dsrg.jpmf.util.Configurator.NameMatching;
+import org.ow2.dsrg.jpmf.util.Configurator.Property;
+import org.ow2.dsrg.jpmf.util.Configurator.PropertyEntry;
+import org.ow2.dsrg.jpmf.util.Configurator.PropertyTable;
+import org.ow2.dsrg.jpmf.util.Configurator.Setter;
+
+
+/**
+ * Runnable check of the property name matching. The check exercises the
+ * property lookup tables in all {@link NameMatching} modes, the precedence
+ * of exact names over folded names, the warnings about folded name
+ * collisions and the precedence of setter methods over fields. It prints
+ * {@code OK} on success and fails with an {@link AssertionError} otherwise.
+ */
+public class NameMatchingCheck {
+
+	/**
+	 * Messages of the warnings logged by the {@link Configurator}.
+	 */
+	private static final List<String> warnings =
+			Collections.synchronizedList(new ArrayList<String>());
+
+
+	/* ***********************************************************************
+	 * Components
+	 * ***********************************************************************/
+
+	static class Pool {
+		@Property(isRequired = false)
+		Integer maxSize;
+
+		@Property(name = "max_size", isRequired = false)
+		String legacy;
+	}
+
+
+	static class Timer {
+		@Property(isRequired = false)
+		String timeout;
+
+		final List<String> setterValues = new ArrayList<>();
+
+		@Setter
+		void setTimeout(String timeout) {
+			setterValues.add(timeout);
+		}
+	}
+
+
+	/* ***********************************************************************
+	 * Checks
+	 * ***********************************************************************/
+
+	public static void main(String[] args) {
+		Handler handler = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				warnings.add(record.getMessage());
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Configurator.log.setUseParentHandlers(false);
+		Configurator.log.addHandler(handler);
+		try {
+			checkTableLookups();
+			checkManyNames();
+			checkTableCollision();
+			checkExactMatching();
+			checkIgnoreCaseMatching();
+			checkRelaxedMatching();
+			checkSetterPrecedence();
+		} finally {
+			Configurator.setPropertyNameMatching(NameMatching.EXACT);
+			Configurator.log.removeHandler(handler);
+			Configurator.log.setUseParentHandlers(true);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Checks which spellings of a name each lookup table matches.
+	 */
+	private static void checkTableLookups() {
+		List<PropertyEntry> properties = entries("maxSize", "name");
+		PropertyTable exact = table(properties, NameMatching.EXACT);
+		PropertyTable ignoreCase = table(properties, NameMatching.IGNORE_CASE);
+		PropertyTable relaxed = table(properties, NameMatching.RELAXED);
+
+		check(exact.find("maxSize") == properties.get(0), "exact name");
+		check(exact.find("maxsize") == null, "exact table ignores case");
+
+		check(ignoreCase.find("MAXSIZE") == properties.get(0), "upper case");
+		check(ignoreCase.find("Name") == properties.get(1), "capitalized");
+		check(ignoreCase.find("max-size") == null,
+				"case insensitive table does not ignore dashes");
+
+		check(relaxed.find("max-size") == properties.get(0), "kebab case");
+		check(relaxed.find("MAX_SIZE") == properties.get(0), "snake case");
+		check(relaxed.find("_name_") == properties.get(1), "underscores");
+		check(relaxed.find("maxSizes") == null, "longer name");
+		check(relaxed.find("maxSiz") == null, "shorter name");
+		check(relaxed.find("") == null, "empty name");
+	}
+
+	/**
+	 * Checks that all properties are found in a table holding many of
+	 * them.
+	 */
+	private static void checkManyNames() {
+		String[] names = new String[500];
+		for (int index = 0; index < names.length; index++) {
+			names[index] = "property" + index + "Value";
+		}
+		List<PropertyEntry> properties = entries(names);
+
+		for (NameMatching matching : NameMatching.values()) {
+			PropertyTable table = table(properties, matching);
+			for (int index = 0; index < names.length; index++) {
+				check(table.find(names[index]) == properties.get(index),
+						matching + " lookup of " + names[index]);
+			}
+			check(table.find("property500Value") == null,
+					matching + " lookup of a missing name");
+		}
+
+		PropertyTable relaxed = table(properties, NameMatching.RELAXED);
+		check(relaxed.find("PROPERTY_42_VALUE") == properties.get(42),
+				"relaxed lookup among many names");
+	}
+
+	/**
+	 * Checks that only the first of the names folding to the same name is
+	 * matched by the folded name, and that the collision is reported.
+	 */
+	private static void checkTableCollision() {
+		warnings.clear();
+		List<PropertyEntry> properties = entries("maxSize", "MAXSIZE");
+		PropertyTable ignoreCase = table(properties, NameMatching.IGNORE_CASE);
+
+		check(ignoreCase.find("maxsize") == properties.get(0),
+				"first property must win the collision");
+		check(ignoreCase.find("MAXSIZE") == properties.get(0),
+				"folded table matches the first property only");
+		check(warnings.size() == 1 && warnings.get(0).contains("match each"),
+				"collision must be reported once: " + warnings);
+	}
+
+	/**
+	 * Checks that differently spelled names are unknown in the exact mode.
+	 */
+	private static void checkExactMatching() {
+		Configurator.setPropertyNameMatching(NameMatching.EXACT);
+		Pool pool = new Pool();
+		Configurator.setProperty(pool, "MAXSIZE", "4");
+		check(pool.maxSize == null, "exact mode must ignore other cases");
+		Configurator.setProperty(pool, "maxSize", "4");
+		check(pool.maxSize == 4, "exact name must match");
+	}
+
+	/**
+	 * Checks that names differing in letter case match in the case
+	 * insensitive mode.
+	 */
+	private static void checkIgnoreCaseMatching() {
+		Configurator.setPropertyNameMatching(NameMatching.IGNORE_CASE);
+		Pool pool = new Pool();
+		Configurator.setProperty(pool, "MAXSIZE", "4");
+		check(pool.maxSize == 4, "upper case name must match");
+		Configurator.setProperty(pool, "MAX_SIZE", "legacy");
+		check("legacy".equals(pool.legacy), "snake case name must match");
+	}
+
+	/**
+	 * Checks that the relaxed mode matches kebab and snake case names, and
+	 * that exactly matching names win over folded ones.
+	 */
+	private static void checkRelaxedMatching() {
+		Configurator.setPropertyNameMatching(NameMatching.RELAXED);
+		Pool pool = new Pool();
+		Configurator.setProperty(pool, "max-size", "4");
+		check(pool.maxSize == 4 && pool.legacy == null,
+				"kebab case name must match the first folded property");
+		Configurator.setProperty(pool, "max_size", "legacy");
+		check("legacy".equals(pool.legacy) && pool.maxSize == 4,
+				"exact name must win over the folded name");
+	}
+
+	/**
+	 * Checks that a setter method takes precedence over a field for the
+	 * same property, whatever the spelling of the name.
+	 */
+	private static void checkSetterPrecedence() {
+		Configurator.setPropertyNameMatching(NameMatching.RELAXED);
+		Timer timer = new Timer();
+		Configurator.setProperty(timer, "timeout", "1");
+		Configurator.setProperty(timer, "TIME_OUT", "2");
+		check(timer.setterValues.equals(Arrays.asList("1", "2")),
+				"setter must be invoked: " + timer.setterValues);
+		check(timer.timeout == null, "field must not be set");
+	}
+
+
+	/* ***********************************************************************
+	 * Helpers
+	 * ***********************************************************************/
+
+	private static List<PropertyEntry> entries(String ... names) {
+		List<PropertyEntry> properties = new ArrayList<>();
+		for (String name : names) {
+			properties.add(new PropertyEntry(name, null, null));
+		}
+		return properties;
+	}
+
+	private static PropertyTable table(List<PropertyEntry> properties,
+			NameMatching matching) {
+		return new PropertyTable(NameMatchingCheck.class, properties,
+				matching);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+package org.ow2.dsrg.jpmf.util;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.ow2.dsrg.jpmf.util.Configurator.ConfigurationException;
+import org.ow2.dsrg.jpmf.util.Configurator.Property;
+import org.ow2.dsrg.jpmf.util.Configurator.PropertyDiagnostics;
+import org.ow2.dsrg.jpmf.util.Configurator.PropertyDiagnostics.Kind;
+import org.ow2.dsrg.jpmf.util.Configurator.PropertyDiagnostics.Summary;
+
+
+/**
+ * Runnable check of the {@link PropertyDiagnostics} sink. The check
+ * exercises the occurrence counts and snapshots, the rate limiting of the
+ * logged warnings, the tracking limit and the release of the tracking limit
+ * taken by unloaded classes. It prints {@code OK} on success and fails with
+ * an {@link AssertionError} otherwise.
+ */
+public class PropertyDiagnosticsCheck {
+
+	private static final PropertyDiagnostics diagnostics =
+			Configurator.getDiagnostics();
+
+	/**
+	 * Warnings logged by the {@link Configurator}.
+	 */
+	private static final List<LogRecord> records =
+			Collections.synchronizedList(new ArrayList<LogRecord>());
+
+
+	/* ***********************************************************************
+	 * Components
+	 * ***********************************************************************/
+
+	static class Sized {
+		@Property(isRequired = false)
+		Integer size;
+	}
+
+
+	/**
+	 * Class without properties, also loaded by a throwaway class loader.
+	 */
+	public static class Plain {
+	}
+
+
+	/* ***********************************************************************
+	 * Checks
+	 * ***********************************************************************/
+
+	public static void main(String[] args) throws Exception {
+		Handler handler = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				records.add(record);
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Configurator.log.setUseParentHandlers(false);
+		Configurator.log.addHandler(handler);
+		try {
+			checkSnapshot();
+			checkRateLimiting();
+			checkTrackingLimit();
+			checkUnloadedClass();
+		} finally {
+			Configurator.log.removeHandler(handler);
+			Configurator.log.setUseParentHandlers(true);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Checks that the snapshot counts the occurrences per class and
+	 * property, with the most frequent diagnostics first.
+	 */
+	private static void checkSnapshot() {
+		reset();
+		Plain plain = new Plain();
+		for (int index = 0; index < 3; index++) {
+			Configurator.setProperty(plain, "bogus", "1");
+		}
+		Configurator.setProperty(plain, "other", "1");
+		setInvalidSize(new Sized());
+		setInvalidSize(new Sized());
+
+		List<Summary> summaries = diagnostics.snapshot();
+		check(summaries.size() == 3, "unexpected snapshot " + summaries);
+		checkSummary(summaries.get(0), Kind.UNKNOWN, "bogus", 3);
+		checkSummary(summaries.get(1), Kind.FAILED, "size", 2);
+		checkSummary(summaries.get(2), Kind.UNKNOWN, "other", 1);
+		check(summaries.get(1).getLastFailure() != null,
+				"failure message must be kept");
+		check(summaries.get(1).getTargetClass() == Sized.class,
+				"unexpected class " + summaries.get(1).getTargetClass());
+	}
+
+	/**
+	 * Checks that repeated occurrences are logged at most once per interval
+	 * and that the number of warnings per interval is limited.
+	 */
+	private static void checkRateLimiting() {
+		reset();
+		diagnostics.setEmissionLimit(2, 1, TimeUnit.HOURS);
+		Plain plain = new Plain();
+		for (int index = 0; index < 5; index++) {
+			Configurator.setProperty(plain, "first", "1");
+		}
+		check(records.size() == 1,
+				"repeated occurrences must be logged once: " + records.size());
+
+		Configurator.setProperty(plain, "second", "1");
+		Configurator.setProperty(plain, "third", "1");
+		check(records.size() == 2,
+				"warnings beyond the budget must not be logged: "
+						+ records.size());
+		check(diagnostics.snapshot().size() == 3,
+				"occurrences beyond the budget must be counted");
+
+		reset();
+		diagnostics.setEmissionLimit(20, 1, TimeUnit.HOURS);
+		setInvalidSize(new Sized());
+		check(records.size() == 1, "failure must be logged");
+		LogRecord record = records.get(0);
+		check(record.getLevel() == Level.WARNING,
+				"unexpected level " + record.getLevel());
+		check(record.getThrown() == null,
+				"failure must be logged without the exception");
+	}
+
+	/**
+	 * Checks that properties beyond the tracking limit are only counted in
+	 * total.
+	 */
+	private static void checkTrackingLimit() {
+		reset();
+		diagnostics.setTrackingLimit(2);
+		Plain plain = new Plain();
+		Configurator.setProperty(plain, "first", "1");
+		Configurator.setProperty(plain, "second", "1");
+		Configurator.setProperty(plain, "third", "1");
+		Configurator.setProperty(plain, "third", "1");
+		Configurator.setProperty(plain, "first", "1");
+
+		List<Summary> summaries = diagnostics.snapshot();
+		check(summaries.size() == 2, "unexpected snapshot " + summaries);
+		checkSummary(summaries.get(0), Kind.UNKNOWN, "first", 2);
+		check(diagnostics.getUntrackedCount() == 2,
+				"unexpected untracked count "
+						+ diagnostics.getUntrackedCount());
+	}
+
+	/**
+	 * Checks that the properties of an unloaded class stop counting towards
+	 * the tracking limit.
+	 */
+	private static void checkUnloadedClass() throws Exception {
+		reset();
+		diagnostics.setTrackingLimit(1);
+		WeakReference<Class<?>> classReference = reportUnloadableClass();
+		Plain plain = new Plain();
+		Configurator.setProperty(plain, "bogus", "1");
+		check(diagnostics.getUntrackedCount() == 1,
+				"tracking limit must be taken by the unloadable class");
+
+		awaitCollection(classReference);
+		for (int attempt = 0; attempt < 100; attempt++) {
+			Configurator.setProperty(plain, "bogus", "1");
+			if (isTracked(Plain.class)) {
+				return;
+			}
+			System.gc();
+			Thread.sleep(10);
+		}
+		throw new AssertionError("unloaded class must release the limit");
+	}
+
+
+	/* ***********************************************************************
+	 * Helpers
+	 * ***********************************************************************/
+
+	/**
+	 * Reports an unknown property of a class loaded by a throwaway class
+	 * loader and returns a weak reference to the class.
+	 */
+	private static WeakReference<Class<?>> reportUnloadableClass()
+			throws Exception {
+		URL location = PropertyDiagnosticsCheck.class.getProtectionDomain()
+				.getCodeSource().getLocation();
+		try (URLClassLoader loader = new URLClassLoader(
+				new URL[] { location }, null)) {
+			Class<?> plainClass = loader.loadClass(Plain.class.getName());
+			check(plainClass != Plain.class, "class must be loaded again");
+			Configurator.setProperty(plainClass.getConstructor()
+					.newInstance(), "bogus", "1");
+			check(diagnostics.snapshot().size() == 1,
+					"unloadable class must be tracked");
+			return new WeakReference<Class<?>>(plainClass);
+		}
+	}
+
+	private static boolean isTracked(Class<?> targetClass) {
+		for (Summary summary : diagnostics.snapshot()) {
+			if (summary.getTargetClass() == targetClass) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void setInvalidSize(Sized sized) {
+		try {
+			Configurator.setProperty(sized, "size", "not a number");
+		} catch(ConfigurationException configException) {
+			return;
+		}
+		throw new AssertionError("invalid value must be rejected");
+	}
+
+	private static void reset() {
+		diagnostics.reset();
+		diagnostics.setTrackingLimit(1000);
+		diagnostics.setEmissionLimit(20, 1, TimeUnit.MINUTES);
+		records.clear();
+	}
+
+	private static void checkSummary(Summary summary, Kind kind,
+			String propertyName, long count) {
+		check(summary.getKind() == kind
+				&& summary.getPropertyName().equals(propertyName)
+				&& summary.getCount() == count,
+				"unexpected summary " + summary);
+	}
+
+	private static void awaitCollection(WeakReference<?> reference)
+			throws InterruptedException {
+		for (int attempt = 0; attempt < 100; attempt++) {
+			if (reference.get() == null) {
+				return;
+			}
+			System.gc();
+			Thread.sleep(10);
+		}
+		throw new AssertionError("object must be garbage collected");
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+}